@@ -0,0 +1,73 @@
+package br.com.rinha.pagamentos.codec;
+
+import br.com.rinha.pagamentos.model.PaymentSent;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentJsonBenchmark {
+
+	private static final byte[] PAYMENT_REQUEST = ("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\","
+			+ "\"amount\":19.90}").getBytes(StandardCharsets.UTF_8);
+
+	private final ObjectMapper objectMapper = new ObjectMapper()
+			.findAndRegisterModules()
+			.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+	private DataBuffer requestBuffer;
+	private DataBuffer responseBuffer;
+	private PaymentSent paymentSent;
+
+	@Setup
+	public void setUp() throws IOException {
+		requestBuffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(PAYMENT_REQUEST.length);
+		requestBuffer.write(PAYMENT_REQUEST);
+		responseBuffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(PaymentJsonCodec.PAYMENT_SENT_MAX_BYTES);
+		paymentSent = new PaymentSent(objectMapper.readValue(PAYMENT_REQUEST, QueuedPayment.class));
+	}
+
+	@Benchmark
+	public QueuedPayment jacksonReadQueuedPayment() throws IOException {
+		return objectMapper.readValue(PAYMENT_REQUEST, QueuedPayment.class);
+	}
+
+	@Benchmark
+	public QueuedPayment codecReadQueuedPayment() {
+		requestBuffer.readPosition(0);
+		return PaymentJsonCodec.readQueuedPayment(requestBuffer);
+	}
+
+	@Benchmark
+	public byte[] jacksonWritePaymentSent() throws IOException {
+		return objectMapper.writeValueAsBytes(paymentSent);
+	}
+
+	@Benchmark
+	public DataBuffer codecWritePaymentSent() {
+		responseBuffer.writePosition(0);
+		PaymentJsonCodec.writePaymentSent(paymentSent, responseBuffer);
+		return responseBuffer;
+	}
+}
@@ -0,0 +1,89 @@
+package br.com.rinha.pagamentos.config;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers;
+import de.javakaffee.kryoserializers.UUIDSerializer;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueSerializerBenchmark {
+
+	private final BinaryQueuedPaymentSerializer binarySerializer = new BinaryQueuedPaymentSerializer();
+	private final KyroRedisSerializer legacySerializer = new KyroRedisSerializer();
+
+	private QueuedPayment payment;
+	private byte[] binaryBytes;
+	private byte[] legacyBytes;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		UUID correlationId = UUID.fromString("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3");
+		payment = new QueuedPayment(correlationId.getMostSignificantBits(), correlationId.getLeastSignificantBits(),
+				1990, System.currentTimeMillis(), 0);
+		binaryBytes = binarySerializer.serialize(payment);
+		legacyBytes = legacyBytes(correlationId, new BigDecimal("19.90"));
+	}
+
+	private static byte[] legacyBytes(UUID correlationId, BigDecimal amount) throws ReflectiveOperationException {
+		Kryo kryo = new Kryo();
+		kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+		kryo.register(LegacyQueuedPayment.class, 10);
+		kryo.register(BigDecimal.class, new DefaultSerializers.BigDecimalSerializer(), 11);
+		kryo.register(UUID.class, new UUIDSerializer(), 12);
+
+		LegacyQueuedPayment legacy = new LegacyQueuedPayment();
+		Field correlationIdField = LegacyQueuedPayment.class.getDeclaredField("correlationId");
+		correlationIdField.setAccessible(true);
+		correlationIdField.set(legacy, correlationId);
+		Field amountField = LegacyQueuedPayment.class.getDeclaredField("amount");
+		amountField.setAccessible(true);
+		amountField.set(legacy, amount);
+
+		try (Output output = new Output(64, -1)) {
+			kryo.writeClassAndObject(output, legacy);
+			return output.toBytes();
+		}
+	}
+
+	@Benchmark
+	public byte[] binarySerialize() {
+		return binarySerializer.serialize(payment);
+	}
+
+	@Benchmark
+	public QueuedPayment binaryDeserialize() {
+		return binarySerializer.deserialize(binaryBytes);
+	}
+
+	@Benchmark
+	public QueuedPayment legacyDeserializeThroughBinary() {
+		return binarySerializer.deserialize(legacyBytes);
+	}
+
+	@Benchmark
+	public Object kryoDeserialize() {
+		return legacySerializer.deserialize(legacyBytes);
+	}
+}
@@ -0,0 +1,75 @@
+package br.com.rinha.pagamentos.routing;
+
+import br.com.rinha.pagamentos.health.HealthSnapshot;
+import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
+import org.objenesis.ObjenesisStd;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingDecisionBenchmark {
+
+	private static final long TYPICAL_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(12);
+
+	@Param({"both", "default-only", "fallback-only", "none"})
+	public String health;
+
+	private ProcessorRouter router;
+
+	@Setup
+	public void setUp() {
+		StubHealthMonitor healthMonitor = new ObjenesisStd().newInstance(StubHealthMonitor.class);
+		healthMonitor.defaultAvailable = health.equals("both") || health.equals("default-only");
+		healthMonitor.fallbackAvailable = health.equals("both") || health.equals("fallback-only");
+
+		CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(null, 5, 1000, 2, 3000, 2000);
+		router = new ProcessorRouter(healthMonitor, breakers,
+				0.05, 0.15, 1000, 500, 1500, 3000, 0.2, 0.1,
+				32, 2, 128, 0.7, 2000);
+	}
+
+	@Benchmark
+	public Route route() {
+		return router.route();
+	}
+
+	@Benchmark
+	public Route routeAcquireAndRecord() {
+		Route route = router.route();
+		if (route != Route.HOLD && router.tryAcquire(route)) {
+			router.recordOutcome(route, true, TYPICAL_LATENCY_NANOS);
+		}
+		return route;
+	}
+
+	public static class StubHealthMonitor extends ProcessorHealthMonitor {
+
+		volatile boolean defaultAvailable;
+		volatile boolean fallbackAvailable;
+
+		public StubHealthMonitor() {
+			super(null, null, null, null, 0, 0);
+		}
+
+		@Override
+		public HealthSnapshot getSnapshot() {
+			return new HealthSnapshot(1, defaultAvailable, 5, fallbackAvailable, 5);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package br.com.rinha.pagamentos.service;
+
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummaryQueryBenchmark {
+
+	private static final String FROM = "2025-07-15T12:34:56.000Z";
+	private static final String TO = "2025-07-15T12:35:56.000Z";
+
+	private List<?> mrangeReply;
+	private List<?> scriptReply;
+
+	@Setup
+	public void setUp() {
+		mrangeReply = List.of(
+				series("payments:amount:ts:default", "amount", "default", "1745630"),
+				series("payments:count:ts:default", "count", "default", "8772"),
+				series("payments:amount:ts:fallback", "amount", "fallback", "41990"),
+				series("payments:count:ts:fallback", "count", "fallback", "211"));
+		scriptReply = List.of(8772L, 1745630L, 211L, 41990L);
+	}
+
+	private static List<?> series(String key, String type, String processor, String value) {
+		return List.of(
+				key,
+				List.of(List.of("type", type), List.of("processor", processor)),
+				List.of(List.of(1752582896000L, value)));
+	}
+
+	@Benchmark
+	public List<String> buildMRangeCommand() {
+		return PaymentService.getRedisData(FROM, TO);
+	}
+
+	@Benchmark
+	public PaymentsSummaryResponse parseMRangeReply() {
+		return PaymentService.parseMRangeResponse(mrangeReply);
+	}
+
+	@Benchmark
+	public PaymentsSummaryResponse decodeScriptReply() {
+		return PaymentService.decodeSummaryReply(scriptReply);
+	}
+}
@@ -0,0 +1,415 @@
+package br.com.rinha.pagamentos.codec;
+
+import br.com.rinha.pagamentos.model.PaymentSent;
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.model.Summary;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+public final class PaymentJsonCodec {
+
+	public static final int PAYMENT_SENT_MAX_BYTES = 128;
+	public static final int SUMMARY_MAX_BYTES = 192;
+
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+	private static final int MAX_AMOUNT_INTEGER_DIGITS = 16;
+
+	private static final byte[] HEX = ascii("0123456789abcdef");
+	private static final byte[] CORRELATION_ID_KEY = ascii("correlationId");
+	private static final byte[] AMOUNT_KEY = ascii("amount");
+
+	private static final byte[] PAYMENT_SENT_PREFIX = ascii("{\"correlationId\":\"");
+	private static final byte[] PAYMENT_SENT_AMOUNT = ascii("\",\"amount\":");
+	private static final byte[] PAYMENT_SENT_REQUESTED_AT = ascii(",\"requestedAt\":\"");
+	private static final byte[] PAYMENT_SENT_SUFFIX = ascii("\"}");
+
+	private static final byte[] SUMMARY_DEFAULT = ascii("{\"default\":");
+	private static final byte[] SUMMARY_FALLBACK = ascii(",\"fallback\":");
+	private static final byte[] SUMMARY_TOTAL_REQUESTS = ascii("{\"totalRequests\":");
+	private static final byte[] SUMMARY_TOTAL_AMOUNT = ascii(",\"totalAmount\":");
+
+	private PaymentJsonCodec() {
+	}
+
+	public static QueuedPayment readQueuedPayment(DataBuffer buffer) {
+		Reader reader = new Reader(buffer);
+		long msb = 0;
+		long lsb = 0;
+		long cents = 0;
+		boolean hasCorrelationId = false;
+		boolean hasAmount = false;
+
+		reader.expect('{');
+		byte next = reader.peek();
+		if (next == '}') {
+			reader.position++;
+		} else {
+			for (;;) {
+				reader.expect('"');
+				int keyStart = reader.position;
+				int keyEnd = reader.skipStringBody();
+				reader.expect(':');
+
+				if (reader.keyEquals(keyStart, keyEnd, CORRELATION_ID_KEY)) {
+					reader.expect('"');
+					msb = reader.readHex(8, 0);
+					reader.expectInCorrelationId('-');
+					msb = reader.readHex(4, msb);
+					reader.expectInCorrelationId('-');
+					msb = reader.readHex(4, msb);
+					reader.expectInCorrelationId('-');
+					lsb = reader.readHex(4, 0);
+					reader.expectInCorrelationId('-');
+					lsb = reader.readHex(12, lsb);
+					reader.expectInCorrelationId('"');
+					hasCorrelationId = true;
+				} else if (reader.keyEquals(keyStart, keyEnd, AMOUNT_KEY)) {
+					cents = reader.readCents();
+					hasAmount = true;
+				} else {
+					reader.skipValue();
+				}
+
+				next = reader.peek();
+				reader.position++;
+				if (next == '}') {
+					break;
+				}
+				if (next != ',') {
+					throw reader.error("Expected ',' or '}'");
+				}
+			}
+		}
+
+		if (!hasCorrelationId || !hasAmount) {
+			throw new DecodingException("Payment requires correlationId and amount");
+		}
+		return new QueuedPayment(msb, lsb, cents);
+	}
+
+	public static void writePaymentSent(PaymentSent payment, DataBuffer buffer) {
+		buffer.write(PAYMENT_SENT_PREFIX);
+		writeUuid(buffer, payment.getCorrelationIdMsb(), payment.getCorrelationIdLsb());
+		buffer.write(PAYMENT_SENT_AMOUNT);
+		writeCents(buffer, payment.getAmountCents());
+		buffer.write(PAYMENT_SENT_REQUESTED_AT);
+		writeInstant(buffer, payment.getRequestedAtMillis());
+		buffer.write(PAYMENT_SENT_SUFFIX);
+	}
+
+	public static void writeSummary(PaymentsSummaryResponse response, DataBuffer buffer) {
+		buffer.write(SUMMARY_DEFAULT);
+		writeSummaryEntry(buffer, response.getDefaultSummary());
+		buffer.write(SUMMARY_FALLBACK);
+		writeSummaryEntry(buffer, response.getFallbackSummary());
+		buffer.write((byte) '}');
+	}
+
+	private static void writeSummaryEntry(DataBuffer buffer, Summary summary) {
+		buffer.write(SUMMARY_TOTAL_REQUESTS);
+		writeLong(buffer, summary != null ? summary.getTotalRequests() : 0);
+		buffer.write(SUMMARY_TOTAL_AMOUNT);
+		writeCents(buffer, summary != null ? summary.getTotalAmountCents() : 0);
+		buffer.write((byte) '}');
+	}
+
+	private static void writeUuid(DataBuffer buffer, long msb, long lsb) {
+		writeHex(buffer, msb >>> 32, 8);
+		buffer.write((byte) '-');
+		writeHex(buffer, msb >>> 16, 4);
+		buffer.write((byte) '-');
+		writeHex(buffer, msb, 4);
+		buffer.write((byte) '-');
+		writeHex(buffer, lsb >>> 48, 4);
+		buffer.write((byte) '-');
+		writeHex(buffer, lsb, 12);
+	}
+
+	private static void writeHex(DataBuffer buffer, long value, int digits) {
+		for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+			buffer.write(HEX[(int) (value >>> shift) & 0xF]);
+		}
+	}
+
+	private static void writeCents(DataBuffer buffer, long cents) {
+		if (cents < 0) {
+			buffer.write((byte) '-');
+			cents = -cents;
+		}
+		writeLong(buffer, cents / 100);
+		buffer.write((byte) '.');
+		long fraction = cents % 100;
+		buffer.write((byte) ('0' + fraction / 10));
+		buffer.write((byte) ('0' + fraction % 10));
+	}
+
+	private static void writeLong(DataBuffer buffer, long value) {
+		if (value < 0) {
+			buffer.write((byte) '-');
+			value = -value;
+		}
+		long divisor = 1;
+		while (divisor <= value / 10) {
+			divisor *= 10;
+		}
+		while (divisor > 0) {
+			buffer.write((byte) ('0' + (value / divisor) % 10));
+			divisor /= 10;
+		}
+	}
+
+	private static void writeFixed(DataBuffer buffer, long value, int digits) {
+		long divisor = 1;
+		for (int i = 1; i < digits; i++) {
+			divisor *= 10;
+		}
+		while (divisor > 0) {
+			buffer.write((byte) ('0' + (value / divisor) % 10));
+			divisor /= 10;
+		}
+	}
+
+	private static void writeInstant(DataBuffer buffer, long epochMillis) {
+		long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+		long millisOfDay = Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+		long shifted = days + 719_468;
+		long era = Math.floorDiv(shifted, 146_097);
+		long dayOfEra = shifted - era * 146_097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthIndex = (5 * dayOfYear + 2) / 153;
+		long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+		long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+		writeFixed(buffer, year, 4);
+		buffer.write((byte) '-');
+		writeFixed(buffer, month, 2);
+		buffer.write((byte) '-');
+		writeFixed(buffer, day, 2);
+		buffer.write((byte) 'T');
+		writeFixed(buffer, millisOfDay / 3_600_000, 2);
+		buffer.write((byte) ':');
+		writeFixed(buffer, (millisOfDay / 60_000) % 60, 2);
+		buffer.write((byte) ':');
+		writeFixed(buffer, (millisOfDay / 1000) % 60, 2);
+		buffer.write((byte) '.');
+		writeFixed(buffer, millisOfDay % 1000, 3);
+		buffer.write((byte) 'Z');
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static final class Reader {
+
+		private final DataBuffer buffer;
+		private final int limit;
+		private int position;
+
+		private Reader(DataBuffer buffer) {
+			this.buffer = buffer;
+			this.position = buffer.readPosition();
+			this.limit = buffer.writePosition();
+		}
+
+		private byte peek() {
+			while (position < limit) {
+				byte current = buffer.getByte(position);
+				if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+					return current;
+				}
+				position++;
+			}
+			throw error("Unexpected end of payment JSON");
+		}
+
+		private void expect(char expected) {
+			if (peek() != expected) {
+				throw error("Expected '" + expected + "'");
+			}
+			position++;
+		}
+
+		private int skipStringBody() {
+			while (position < limit) {
+				byte current = buffer.getByte(position++);
+				if (current == '\\') {
+					position++;
+				} else if (current == '"') {
+					return position - 1;
+				}
+			}
+			throw error("Unterminated string");
+		}
+
+		private boolean keyEquals(int start, int end, byte[] key) {
+			if (end - start != key.length) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (buffer.getByte(start + i) != key[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private long readHex(int digits, long value) {
+			for (int i = 0; i < digits; i++) {
+				if (position >= limit) {
+					throw error("Truncated correlationId");
+				}
+				value = (value << 4) | hexValue(buffer.getByte(position++));
+			}
+			return value;
+		}
+
+		private void expectInCorrelationId(char expected) {
+			if (position >= limit || buffer.getByte(position) != expected) {
+				throw error("Malformed correlationId");
+			}
+			position++;
+		}
+
+		private long hexValue(byte current) {
+			if (current >= '0' && current <= '9') {
+				return current - '0';
+			}
+			if (current >= 'a' && current <= 'f') {
+				return current - 'a' + 10;
+			}
+			if (current >= 'A' && current <= 'F') {
+				return current - 'A' + 10;
+			}
+			throw error("Malformed correlationId");
+		}
+
+		private long readCents() {
+			boolean quoted = peek() == '"';
+			if (quoted) {
+				position++;
+			}
+			int start = position;
+			boolean negative = false;
+			if (position < limit && buffer.getByte(position) == '-') {
+				negative = true;
+				position++;
+			}
+
+			long units = 0;
+			int integerDigits = 0;
+			while (position < limit && isDigit(buffer.getByte(position))) {
+				if (integerDigits == 1 && units == 0) {
+					throw error("Malformed amount");
+				}
+				if (++integerDigits > MAX_AMOUNT_INTEGER_DIGITS) {
+					throw error("Amount out of range");
+				}
+				units = units * 10 + (buffer.getByte(position++) - '0');
+			}
+			if (integerDigits == 0) {
+				throw error("Malformed amount");
+			}
+
+			long fraction = 0;
+			int fractionDigits = 0;
+			if (position < limit && buffer.getByte(position) == '.') {
+				position++;
+				while (position < limit && isDigit(buffer.getByte(position))) {
+					byte digit = buffer.getByte(position++);
+					if (fractionDigits < 2) {
+						fraction = fraction * 10 + (digit - '0');
+					} else if (digit != '0') {
+						throw error("Amount has more than 2 decimal places");
+					}
+					fractionDigits++;
+				}
+				if (fractionDigits == 0) {
+					throw error("Malformed amount");
+				}
+			}
+			if (fractionDigits == 1) {
+				fraction *= 10;
+			}
+
+			if (position < limit && (buffer.getByte(position) == 'e' || buffer.getByte(position) == 'E')) {
+				position++;
+				while (position < limit && isNumberPart(buffer.getByte(position))) {
+					position++;
+				}
+				String text = buffer.toString(start, position - start, StandardCharsets.US_ASCII);
+				if (quoted) {
+					expect('"');
+				}
+				return exponentCents(text);
+			}
+
+			if (quoted) {
+				expect('"');
+			}
+			long cents = units * 100 + fraction;
+			return negative ? -cents : cents;
+		}
+
+		private long exponentCents(String text) {
+			try {
+				BigDecimal cents = new BigDecimal(text).movePointRight(2);
+				if (cents.stripTrailingZeros().scale() > 0) {
+					throw error("Amount has more than 2 decimal places");
+				}
+				return cents.longValueExact();
+			} catch (NumberFormatException | ArithmeticException e) {
+				throw error("Malformed amount");
+			}
+		}
+
+		private void skipValue() {
+			byte current = peek();
+			if (current == '"') {
+				position++;
+				skipStringBody();
+				return;
+			}
+			if (current == '{' || current == '[') {
+				int depth = 0;
+				while (position < limit) {
+					current = buffer.getByte(position++);
+					if (current == '"') {
+						skipStringBody();
+					} else if (current == '{' || current == '[') {
+						depth++;
+					} else if ((current == '}' || current == ']') && --depth == 0) {
+						return;
+					}
+				}
+				throw error("Unterminated value");
+			}
+			while (position < limit) {
+				current = buffer.getByte(position);
+				if (current == ',' || current == '}' || current == ']' || current == ' ' || current == '\n' || current == '\r' || current == '\t') {
+					return;
+				}
+				position++;
+			}
+		}
+
+		private static boolean isDigit(byte current) {
+			return current >= '0' && current <= '9';
+		}
+
+		private static boolean isNumberPart(byte current) {
+			return isDigit(current) || current == '+' || current == '-';
+		}
+
+		private DecodingException error(String message) {
+			return new DecodingException(message + " at offset " + (position - buffer.readPosition()));
+		}
+	}
+}
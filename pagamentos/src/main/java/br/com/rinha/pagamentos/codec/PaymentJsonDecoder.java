@@ -0,0 +1,32 @@
+package br.com.rinha.pagamentos.codec;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+public class PaymentJsonDecoder extends AbstractDataBufferDecoder<QueuedPayment> {
+
+	public PaymentJsonDecoder() {
+		super(MediaType.APPLICATION_JSON);
+	}
+
+	@Override
+	public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+		return QueuedPayment.class == elementType.toClass() && super.canDecode(elementType, mimeType);
+	}
+
+	@Override
+	public QueuedPayment decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+		try {
+			return PaymentJsonCodec.readQueuedPayment(buffer);
+		} finally {
+			DataBufferUtils.release(buffer);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package br.com.rinha.pagamentos.codec;
+
+import br.com.rinha.pagamentos.model.PaymentSent;
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+public class PaymentJsonEncoder extends AbstractEncoder<Object> {
+
+	public PaymentJsonEncoder() {
+		super(MediaType.APPLICATION_JSON);
+	}
+
+	@Override
+	public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+		Class<?> type = elementType.toClass();
+		return (PaymentSent.class == type || PaymentsSummaryResponse.class == type) && super.canEncode(elementType, mimeType);
+	}
+
+	@Override
+	public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+			ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+		return Flux.from(inputStream).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+	}
+
+	@Override
+	public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory,
+			ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+		if (value instanceof PaymentSent paymentSent) {
+			DataBuffer buffer = bufferFactory.allocateBuffer(PaymentJsonCodec.PAYMENT_SENT_MAX_BYTES);
+			PaymentJsonCodec.writePaymentSent(paymentSent, buffer);
+			return buffer;
+		}
+		DataBuffer buffer = bufferFactory.allocateBuffer(PaymentJsonCodec.SUMMARY_MAX_BYTES);
+		PaymentJsonCodec.writeSummary((PaymentsSummaryResponse) value, buffer);
+		return buffer;
+	}
+}
@@ -0,0 +1,81 @@
+package br.com.rinha.pagamentos.config;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class BinaryQueuedPaymentSerializer implements RedisSerializer<QueuedPayment> {
+
+	public static final byte VERSION_1 = 1;
+	public static final int RECORD_SIZE = 32;
+
+	private static final int VERSION_OFFSET = 0;
+	private static final int ATTEMPTS_OFFSET = 1;
+	private static final int MSB_OFFSET = 2;
+	private static final int LSB_OFFSET = 10;
+	private static final int CENTS_OFFSET = 18;
+	private static final int RECEIVED_AT_OFFSET = 26;
+	private static final long RECEIVED_AT_MASK = 0xFFFF_FFFF_FFFFL;
+	private static final int MAX_ATTEMPTS = 0xFF;
+
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	private final KyroRedisSerializer legacySerializer = new KyroRedisSerializer();
+
+	public static boolean isCurrentFormat(ByteBuffer bytes) {
+		return bytes.remaining() == RECORD_SIZE && bytes.get(bytes.position() + VERSION_OFFSET) == VERSION_1;
+	}
+
+	@Override
+	public byte[] serialize(QueuedPayment payment) throws SerializationException {
+		if (payment == null) {
+			return new byte[0];
+		}
+		byte[] bytes = new byte[RECORD_SIZE];
+		bytes[VERSION_OFFSET] = VERSION_1;
+		bytes[ATTEMPTS_OFFSET] = (byte) Math.min(payment.getAttempts(), MAX_ATTEMPTS);
+		LONG.set(bytes, MSB_OFFSET, payment.getCorrelationIdMsb());
+		LONG.set(bytes, LSB_OFFSET, payment.getCorrelationIdLsb());
+		LONG.set(bytes, CENTS_OFFSET, payment.getAmountCents());
+		long receivedAt = payment.getReceivedAtMillis() & RECEIVED_AT_MASK;
+		SHORT.set(bytes, RECEIVED_AT_OFFSET, (short) (receivedAt >>> 32));
+		INT.set(bytes, RECEIVED_AT_OFFSET + 2, (int) receivedAt);
+		return bytes;
+	}
+
+	@Override
+	public QueuedPayment deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		if (bytes.length == RECORD_SIZE && bytes[VERSION_OFFSET] == VERSION_1) {
+			long receivedAt = ((long) ((short) SHORT.get(bytes, RECEIVED_AT_OFFSET) & 0xFFFF) << 32)
+					| ((int) INT.get(bytes, RECEIVED_AT_OFFSET + 2) & 0xFFFF_FFFFL);
+			return new QueuedPayment(
+					(long) LONG.get(bytes, MSB_OFFSET),
+					(long) LONG.get(bytes, LSB_OFFSET),
+					(long) LONG.get(bytes, CENTS_OFFSET),
+					receivedAt,
+					bytes[ATTEMPTS_OFFSET] & MAX_ATTEMPTS
+			);
+		}
+		return fromLegacy(legacySerializer.deserialize(bytes));
+	}
+
+	private QueuedPayment fromLegacy(Object legacy) {
+		if (legacy instanceof LegacyQueuedPayment payment) {
+			return new QueuedPayment(payment.getAmount(), payment.getCorrelationId());
+		}
+		if (legacy == null) {
+			return null;
+		}
+		throw new SerializationException("Unsupported queued payment entry: " + legacy.getClass().getName());
+	}
+}
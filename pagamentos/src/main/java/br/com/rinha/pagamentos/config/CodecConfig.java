@@ -0,0 +1,21 @@
+package br.com.rinha.pagamentos.config;
+
+import br.com.rinha.pagamentos.codec.PaymentJsonDecoder;
+import br.com.rinha.pagamentos.codec.PaymentJsonEncoder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CodecConfig {
+
+	@Bean
+	@ConditionalOnProperty(name = "codec.json.mode", havingValue = "fast", matchIfMissing = true)
+	public CodecCustomizer paymentJsonCodecCustomizer() {
+		return configurer -> {
+			configurer.customCodecs().registerWithDefaultConfig(new PaymentJsonDecoder());
+			configurer.customCodecs().registerWithDefaultConfig(new PaymentJsonEncoder());
+		};
+	}
+}
@@ -2,41 +2,33 @@
 
 	import com.esotericsoftware.kryo.Kryo;
 	import com.esotericsoftware.kryo.io.Input;
-	import com.esotericsoftware.kryo.io.Output;
 	import com.esotericsoftware.kryo.serializers.DefaultSerializers;
+	import com.esotericsoftware.kryo.util.Pool;
 	import de.javakaffee.kryoserializers.UUIDSerializer;
 	import org.objenesis.strategy.StdInstantiatorStrategy;
 	import org.springframework.data.redis.serializer.RedisSerializer;
 	import org.springframework.data.redis.serializer.SerializationException;
-	import java.io.ByteArrayOutputStream;
 	import java.util.UUID;
 
 	public class KyroRedisSerializer implements RedisSerializer<Object> {
 
-		private static final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
-			Kryo kryo = new Kryo();
+		private static final Pool<Kryo> kryoPool = new Pool<>(true, false, 4) {
+			@Override
+			protected Kryo create() {
+				Kryo kryo = new Kryo();
 
-			kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+				kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
 
-			kryo.register(br.com.rinha.pagamentos.model.QueuedPayment.class, 10);
-			kryo.register(java.math.BigDecimal.class, new DefaultSerializers.BigDecimalSerializer(), 11);
-			kryo.register(UUID.class, new UUIDSerializer(), 12);
-			return kryo;
-		});
+				kryo.register(LegacyQueuedPayment.class, 10);
+				kryo.register(java.math.BigDecimal.class, new DefaultSerializers.BigDecimalSerializer(), 11);
+				kryo.register(UUID.class, new UUIDSerializer(), 12);
+				return kryo;
+			}
+		};
 
 		@Override
 		public byte[] serialize(Object o) throws SerializationException {
-			if (o == null) {
-				return new byte[0];
-			}
-			try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-					Output output = new Output(baos)) {
-				kryoThreadLocal.get().writeClassAndObject(output, o);
-				output.flush();
-				return baos.toByteArray();
-			} catch (Exception e) {
-				throw new SerializationException("Could not serialize object with Kryo", e);
-			}
+			throw new SerializationException("Kryo queue format is read-only; use BinaryQueuedPaymentSerializer");
 		}
 
 		@Override
@@ -44,10 +36,13 @@
 			if (bytes == null || bytes.length == 0) {
 				return null;
 			}
+			Kryo kryo = kryoPool.obtain();
 			try (Input input = new Input(bytes)) {
-				return kryoThreadLocal.get().readClassAndObject(input);
+				return kryo.readClassAndObject(input);
 			} catch (Exception e) {
 				throw new SerializationException("Could not deserialize object with Kryo", e);
+			} finally {
+				kryoPool.free(kryo);
 			}
 		}
 	}
@@ -0,0 +1,21 @@
+package br.com.rinha.pagamentos.config;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public class LegacyQueuedPayment {
+
+	private UUID correlationId;
+	private BigDecimal amount;
+
+	public LegacyQueuedPayment() {
+	}
+
+	public UUID getCorrelationId() {
+		return correlationId;
+	}
+
+	public BigDecimal getAmount() {
+		return amount;
+	}
+}
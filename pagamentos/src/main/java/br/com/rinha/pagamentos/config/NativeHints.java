@@ -1,5 +1,7 @@
 package br.com.rinha.pagamentos.config;
 
+import br.com.rinha.pagamentos.codec.PaymentJsonDecoder;
+import br.com.rinha.pagamentos.codec.PaymentJsonEncoder;
 import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
 import br.com.rinha.pagamentos.model.HealthCheckResponse;
 import br.com.rinha.pagamentos.model.PaymentSent;
@@ -35,7 +37,11 @@ public class NativeHints implements RuntimeHintsRegistrar {
 						PaymentsSummaryResponse.class,
 						Summary.class,
 						DefaultSerializers.BigDecimalSerializer.class,
-						StdInstantiatorStrategy.class
+						StdInstantiatorStrategy.class,
+						PaymentJsonDecoder.class,
+						PaymentJsonEncoder.class,
+						LegacyQueuedPayment.class,
+						BinaryQueuedPaymentSerializer.class
 				),
 				hint -> hint.withMembers(reflectionCategories)
 		);
@@ -50,6 +56,7 @@ public class NativeHints implements RuntimeHintsRegistrar {
 
 		TypeReference.listOf(
 				QueuedPayment.class,
+				LegacyQueuedPayment.class,
 				BigDecimal.class,
 				UUID.class
 		).forEach(type -> hints.serialization().registerType(type));
@@ -2,7 +2,11 @@ package br.com.rinha.pagamentos.config;
 
 import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
 import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.routing.CircuitBreakerRegistry;
+import br.com.rinha.pagamentos.summary.RollupLevels;
+import br.com.rinha.pagamentos.summary.SummaryCache;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,7 +20,6 @@ import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
-import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.nio.charset.StandardCharsets;
@@ -30,15 +33,15 @@ public class RedisConfig {
 	public ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate(
 			ReactiveRedisConnectionFactory factory) {
 
-		var kryoSerializer = new KyroRedisSerializer();
+		var paymentSerializer = new BinaryQueuedPaymentSerializer();
 		var stringSerializer = new StringRedisSerializer();
 
 		RedisSerializationContext<String, QueuedPayment> serializationContext = RedisSerializationContext
 				.<String, QueuedPayment>newSerializationContext(stringSerializer)
 				.key(stringSerializer)
-				.value((RedisSerializer<QueuedPayment>) (RedisSerializer<?>) kryoSerializer)
+				.value(paymentSerializer)
 				.hashKey(stringSerializer)
-				.hashValue((RedisSerializer<QueuedPayment>) (RedisSerializer<?>) kryoSerializer)
+				.hashValue(paymentSerializer)
 				.build();
 
 		return new ReactiveRedisTemplate<>(factory, serializationContext);
@@ -56,13 +59,21 @@ public class RedisConfig {
 	}
 
 	@Bean
-	public ApplicationRunner redisTimeSeriesInitializer(@Qualifier("persistedRedisTemplate") RedisTemplate<String, String> redisTemplate) {
+	public ApplicationRunner redisTimeSeriesInitializer(
+			@Qualifier("persistedRedisTemplate") RedisTemplate<String, String> redisTemplate,
+			@Value("${summary.rollup.raw-retention-ms}") long rawRetentionMillis,
+			@Value("${summary.rollup.retention-ms}") long rollupRetentionMillis) {
 		return args -> {
 			redisTemplate.execute((RedisConnection connection) -> {
-				createTimeSeriesIfNotExists(connection, "payments:amount:ts:default", "type", "amount", "processor", "default");
-				createTimeSeriesIfNotExists(connection, "payments:count:ts:default", "type", "count", "processor", "default");
-				createTimeSeriesIfNotExists(connection, "payments:amount:ts:fallback", "type", "amount", "processor", "fallback");
-				createTimeSeriesIfNotExists(connection, "payments:count:ts:fallback", "type", "count", "processor", "fallback");
+				for (String processor : new String[]{"default", "fallback"}) {
+					for (String type : new String[]{"amount", "count"}) {
+						String rawKey = "payments:" + type + ":ts:" + processor;
+						createTimeSeriesIfNotExists(connection, rawKey, rawRetentionMillis, "type", type, "processor", processor);
+						for (int level = 0; level < RollupLevels.LEVEL_MILLIS.length; level++) {
+							createRollupIfNotExists(connection, rawKey, type, processor, level, rollupRetentionMillis);
+						}
+					}
+				}
 				return null;
 			});
 		};
@@ -76,22 +87,39 @@ public class RedisConfig {
 	@Bean
 	public RedisMessageListenerContainer redisMessageListenerContainer(
 			RedisConnectionFactory connectionFactory,
-			ProcessorHealthMonitor healthMonitor) {
+			ProcessorHealthMonitor healthMonitor,
+			CircuitBreakerRegistry circuitBreakerRegistry,
+			SummaryCache summaryCache) {
 
 		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(connectionFactory);
 		container.addMessageListener(healthMonitor, healthMonitor.getTopic());
+		container.addMessageListener(circuitBreakerRegistry, circuitBreakerRegistry.getTopic());
+		container.addMessageListener(summaryCache, summaryCache.getTopic());
 		return container;
 	}
 
 	private static final String CREATE_TS_IF_NOT_EXISTS_SCRIPT =
 			"if redis.call('EXISTS', KEYS[1]) == 0 then " +
-					"  return redis.call('TS.CREATE', KEYS[1], 'DUPLICATE_POLICY', 'SUM', 'LABELS', ARGV[1], ARGV[2], ARGV[3], ARGV[4]) " +
+					"  return redis.call('TS.CREATE', KEYS[1], 'RETENTION', ARGV[5], 'DUPLICATE_POLICY', 'SUM', 'LABELS', ARGV[1], ARGV[2], ARGV[3], ARGV[4]) " +
 					"else " +
-					"  return 'OK' " +
+					"  return redis.call('TS.ALTER', KEYS[1], 'RETENTION', ARGV[5]) " +
 					"end";
 
-	private void createTimeSeriesIfNotExists(RedisConnection connection, String key, String label1Name, String label1Value, String label2Name, String label2Value) {
+	private static final String CREATE_ROLLUP_IF_NOT_EXISTS_SCRIPT =
+			"if redis.call('EXISTS', KEYS[2]) == 0 then " +
+					"  redis.call('TS.CREATE', KEYS[2], 'RETENTION', ARGV[1], 'DUPLICATE_POLICY', 'SUM', " +
+					"    'LABELS', 'type', ARGV[2], 'processor', ARGV[3], 'granularity', ARGV[4]) " +
+					"  redis.call('TS.CREATERULE', KEYS[1], KEYS[2], 'AGGREGATION', 'sum', ARGV[5]) " +
+					"  local time = redis.call('TIME') " +
+					"  local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+					"  local since = redis.call('GET', KEYS[3]) " +
+					"  if not since or now > tonumber(since) then redis.call('SET', KEYS[3], now) end " +
+					"end " +
+					"return 'OK'";
+
+	private void createTimeSeriesIfNotExists(RedisConnection connection, String key, long retentionMillis,
+			String label1Name, String label1Value, String label2Name, String label2Value) {
 		connection.scriptingCommands().eval(
 				CREATE_TS_IF_NOT_EXISTS_SCRIPT.getBytes(StandardCharsets.UTF_8),
 				ReturnType.STATUS,
@@ -100,7 +128,26 @@ public class RedisConfig {
 				label1Name.getBytes(StandardCharsets.UTF_8),
 				label1Value.getBytes(StandardCharsets.UTF_8),
 				label2Name.getBytes(StandardCharsets.UTF_8),
-				label2Value.getBytes(StandardCharsets.UTF_8)
+				label2Value.getBytes(StandardCharsets.UTF_8),
+				String.valueOf(retentionMillis).getBytes(StandardCharsets.UTF_8)
+		);
+	}
+
+	private void createRollupIfNotExists(RedisConnection connection, String rawKey, String type, String processor,
+			int level, long retentionMillis) {
+		String granularity = RollupLevels.LEVEL_LABELS[level];
+		connection.scriptingCommands().eval(
+				CREATE_ROLLUP_IF_NOT_EXISTS_SCRIPT.getBytes(StandardCharsets.UTF_8),
+				ReturnType.STATUS,
+				3,
+				rawKey.getBytes(StandardCharsets.UTF_8),
+				RollupLevels.rollupKey(rawKey, level).getBytes(StandardCharsets.UTF_8),
+				RollupLevels.sinceKey(level).getBytes(StandardCharsets.UTF_8),
+				String.valueOf(retentionMillis).getBytes(StandardCharsets.UTF_8),
+				type.getBytes(StandardCharsets.UTF_8),
+				processor.getBytes(StandardCharsets.UTF_8),
+				granularity.getBytes(StandardCharsets.UTF_8),
+				String.valueOf(RollupLevels.LEVEL_MILLIS[level]).getBytes(StandardCharsets.UTF_8)
 		);
 	}
 }
@@ -1,19 +0,0 @@
-package br.com.rinha.pagamentos.config;
-
-import net.javacrumbs.shedlock.core.LockProvider;
-import net.javacrumbs.shedlock.provider.redis.spring.RedisLockProvider;
-import net.javacrumbs.shedlock.spring.annotation.EnableSchedulerLock;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
-
-@Configuration
-@EnableSchedulerLock(defaultLockAtMostFor = "10s")
-public class ShedLockConfig {
-
-	@Bean
-	public LockProvider lockProvider(RedisConnectionFactory connectionFactory) {
-		return new RedisLockProvider(connectionFactory);
-	}
-
-}
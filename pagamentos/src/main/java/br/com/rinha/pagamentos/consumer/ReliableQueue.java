@@ -0,0 +1,336 @@
+package br.com.rinha.pagamentos.consumer;
+
+import br.com.rinha.pagamentos.config.BinaryQueuedPaymentSerializer;
+import br.com.rinha.pagamentos.ingest.MpmcRing;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.persistence.PersistenceBuffer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class ReliableQueue {
+
+	private static final String IN_FLIGHT_KEY_PREFIX = "payments:in-flight:";
+	private static final String NODES_KEY = "payments:consumer-nodes";
+	private static final String NODE_ALIVE_KEY_PREFIX = "payments:consumer-alive:";
+	private static final int ACK_BUFFER_CAPACITY = 4096;
+	private static final Duration PERSISTENCE_AWAIT_TIMEOUT = Duration.ofSeconds(1);
+	private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(2);
+
+	@SuppressWarnings("unchecked")
+	private static final Class<List<ByteBuffer>> RAW_BATCH = (Class<List<ByteBuffer>>) (Class<?>) List.class;
+
+	@SuppressWarnings("unchecked")
+	private static final RedisElementReader<List<ByteBuffer>> RAW_ELEMENT_READER = raw -> (List<ByteBuffer>) (Object) raw;
+
+	private static final RedisScript<List<ByteBuffer>> CLAIM_SCRIPT =
+			new DefaultRedisScript<>(
+					"local claimed = {} " +
+							"for i = 1, tonumber(ARGV[1]) do " +
+							"  local entry = redis.call('LMOVE', KEYS[1], KEYS[2], 'RIGHT', 'LEFT') " +
+							"  if not entry then break end " +
+							"  claimed[i] = entry " +
+							"end " +
+							"return claimed",
+					RAW_BATCH
+			);
+
+	private static final RedisScript<Long> ACK_SCRIPT =
+			new DefaultRedisScript<>(
+					"local removed = 0 " +
+							"for i = 1, #ARGV do " +
+							"  removed = removed + redis.call('LREM', KEYS[1], -1, ARGV[i]) " +
+							"end " +
+							"return removed",
+					Long.class
+			);
+
+	private static final RedisScript<Long> NACK_SCRIPT =
+			new DefaultRedisScript<>(
+					"local removed = redis.call('LREM', KEYS[1], -1, ARGV[1]) " +
+							"if removed > 0 then redis.call('ZADD', KEYS[2], ARGV[3], ARGV[2]) end " +
+							"return removed",
+					Long.class
+			);
+
+	private static final RedisScript<Long> NORMALIZE_SCRIPT =
+			new DefaultRedisScript<>(
+					"local removed = redis.call('LREM', KEYS[1], 1, ARGV[1]) " +
+							"if removed > 0 then redis.call('LPUSH', KEYS[1], ARGV[2]) end " +
+							"return removed",
+					Long.class
+			);
+
+	private static final RedisScript<Long> RECLAIM_SCRIPT =
+			new DefaultRedisScript<>(
+					"if redis.call('EXISTS', KEYS[4]) == 1 then return 0 end " +
+							"local moved = 0 " +
+							"while redis.call('LMOVE', KEYS[1], KEYS[2], 'RIGHT', 'RIGHT') do " +
+							"  moved = moved + 1 " +
+							"end " +
+							"redis.call('SREM', KEYS[3], ARGV[1]) " +
+							"return moved",
+					Long.class
+			);
+
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
+	private final PersistenceBuffer persistenceBuffer;
+	private final RetryScheduler retryScheduler;
+	private final RedisElementWriter<QueuedPayment> paymentWriter;
+	private final RedisElementReader<QueuedPayment> paymentReader;
+	private final RedisElementWriter<Object> scriptArgsWriter;
+	private final RedisElementReader<Long> countReader = RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+	private final MpmcRing<QueuedPayment> pendingAcks = new MpmcRing<>(ACK_BUFFER_CAPACITY);
+	private final String nodeId = UUID.randomUUID().toString();
+	private final String inFlightKey = IN_FLIGHT_KEY_PREFIX + nodeId;
+	private final String aliveKey = NODE_ALIVE_KEY_PREFIX + nodeId;
+	private final boolean enabled;
+	private final int ackBatchSize;
+	private final Duration nodeTtl;
+
+	private final AtomicBoolean acking = new AtomicBoolean();
+	private final LongAdder claimed = new LongAdder();
+	private final LongAdder normalized = new LongAdder();
+	private final LongAdder acked = new LongAdder();
+	private final LongAdder ackBatches = new LongAdder();
+	private final LongAdder ackMisses = new LongAdder();
+	private final LongAdder nacked = new LongAdder();
+	private final LongAdder reclaimed = new LongAdder();
+
+	private volatile List<QueuedPayment> failedAcks;
+
+	public ReliableQueue(
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
+			PersistenceBuffer persistenceBuffer,
+			RetryScheduler retryScheduler,
+			@Value("${retry.consumer.mode}") String consumerMode,
+			@Value("${retry.consumer.reliable.ack-batch-size}") int ackBatchSize,
+			@Value("${retry.consumer.reliable.heartbeat-ms}") long heartbeatMillis,
+			@Value("${retry.consumer.reliable.node-ttl-heartbeats}") int nodeTtlHeartbeats) {
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
+		this.persistenceBuffer = persistenceBuffer;
+		this.retryScheduler = retryScheduler;
+		this.paymentWriter = reactiveQueuedRedisTemplate.getSerializationContext().getValueSerializationPair().getWriter();
+		this.paymentReader = reactiveQueuedRedisTemplate.getSerializationContext().getValueSerializationPair().getReader();
+		this.scriptArgsWriter = element -> {
+			if (element instanceof QueuedPayment payment) {
+				return paymentWriter.write(payment);
+			}
+			if (element instanceof ByteBuffer raw) {
+				return raw.duplicate();
+			}
+			return StandardCharsets.UTF_8.encode(element.toString());
+		};
+		this.enabled = RetryQueueConsumer.RELIABLE_MODE.equals(consumerMode);
+		this.ackBatchSize = ackBatchSize;
+		this.nodeTtl = Duration.ofMillis(heartbeatMillis * Math.max(2, nodeTtlHeartbeats));
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public Mono<Void> register() {
+		return reactivePersistedRedisTemplate.opsForValue()
+				.set(aliveKey, "1", nodeTtl)
+				.then(reactivePersistedRedisTemplate.opsForSet().add(NODES_KEY, nodeId))
+				.then();
+	}
+
+	public Flux<QueuedPayment> claim(String laneKey, int count) {
+		return reactiveQueuedRedisTemplate
+				.execute(CLAIM_SCRIPT, List.of(laneKey, inFlightKey), List.of(String.valueOf(count)), scriptArgsWriter, RAW_ELEMENT_READER)
+				.flatMapIterable(batch -> batch)
+				.concatMap(this::toClaimed)
+				.doOnNext(payment -> claimed.increment());
+	}
+
+	private Mono<QueuedPayment> toClaimed(ByteBuffer raw) {
+		QueuedPayment payment = paymentReader.read(raw.duplicate());
+		if (payment == null) {
+			return Mono.empty();
+		}
+		if (BinaryQueuedPaymentSerializer.isCurrentFormat(raw)) {
+			return Mono.just(payment);
+		}
+		return reactiveQueuedRedisTemplate
+				.execute(NORMALIZE_SCRIPT, List.of(inFlightKey), List.of(raw, payment), scriptArgsWriter, countReader)
+				.next()
+				.doOnNext(normalized::add)
+				.onErrorResume(e -> Mono.empty())
+				.thenReturn(payment);
+	}
+
+	public void ack(QueuedPayment payment) {
+		if (!pendingAcks.offer(payment)) {
+			flushAcks();
+			if (!pendingAcks.offer(payment)) {
+				removeInFlight(List.of(payment)).subscribe(null, e -> ackMisses.increment());
+				return;
+			}
+		}
+		if (pendingAcks.size() >= ackBatchSize) {
+			flushAcks();
+		}
+	}
+
+	public Mono<Void> nack(QueuedPayment payment) {
+		nacked.increment();
+		QueuedPayment next = retryScheduler.nextAttempt(payment);
+		List<Object> args = List.of(payment, next, String.valueOf(retryScheduler.readyAtMillis(next.getAttempts())));
+		return reactiveQueuedRedisTemplate
+				.execute(NACK_SCRIPT, List.of(inFlightKey, RetryScheduler.DELAYED_KEY), args, scriptArgsWriter, countReader)
+				.then();
+	}
+
+	@Scheduled(fixedDelayString = "${retry.consumer.reliable.ack-interval-ms}")
+	public void scheduledAckFlush() {
+		flushAcks();
+	}
+
+	private void flushAcks() {
+		if (!acking.compareAndSet(false, true)) {
+			return;
+		}
+
+		List<QueuedPayment> batch = failedAcks;
+		failedAcks = null;
+		if (batch == null) {
+			batch = drainAcks();
+		}
+		if (batch.isEmpty()) {
+			acking.set(false);
+			return;
+		}
+
+		final List<QueuedPayment> inFlight = batch;
+		persistenceBuffer.awaitPersisted()
+				.timeout(PERSISTENCE_AWAIT_TIMEOUT)
+				.then(removeInFlight(inFlight))
+				.doFinally(signal -> acking.set(false))
+				.subscribe(
+						removed -> {
+							ackBatches.increment();
+							acked.add(removed);
+							ackMisses.add(inFlight.size() - removed);
+						},
+						e -> failedAcks = inFlight);
+	}
+
+	private List<QueuedPayment> drainAcks() {
+		List<QueuedPayment> batch = new ArrayList<>(Math.min(ackBatchSize * 4, pendingAcks.size()));
+		QueuedPayment payment;
+		while (batch.size() < ackBatchSize * 4 && (payment = pendingAcks.poll()) != null) {
+			batch.add(payment);
+		}
+		return batch;
+	}
+
+	private Mono<Long> removeInFlight(List<QueuedPayment> payments) {
+		return reactiveQueuedRedisTemplate.execute(ACK_SCRIPT, List.of(inFlightKey), payments).next();
+	}
+
+	@Scheduled(fixedRateString = "${retry.consumer.reliable.heartbeat-ms}")
+	public void heartbeat() {
+		if (!enabled) {
+			return;
+		}
+		register().subscribe();
+	}
+
+	@Scheduled(fixedDelayString = "${retry.consumer.reliable.reclaim-interval-ms}")
+	public void reclaimDeadNodes() {
+		if (!enabled) {
+			return;
+		}
+		reactivePersistedRedisTemplate.opsForSet()
+				.members(NODES_KEY)
+				.filter(node -> !node.equals(nodeId))
+				.flatMap(node -> reactivePersistedRedisTemplate.execute(
+						RECLAIM_SCRIPT,
+						List.of(IN_FLIGHT_KEY_PREFIX + node, RetryScheduler.FRESH_QUEUE_KEY, NODES_KEY, NODE_ALIVE_KEY_PREFIX + node),
+						List.of(node)).next())
+				.subscribe(reclaimed::add, e -> { });
+	}
+
+	@PreDestroy
+	public void releaseOnShutdown() {
+		if (!enabled) {
+			return;
+		}
+		List<QueuedPayment> remaining = new ArrayList<>();
+		List<QueuedPayment> failed = failedAcks;
+		if (failed != null) {
+			remaining.addAll(failed);
+		}
+		QueuedPayment payment;
+		while ((payment = pendingAcks.poll()) != null) {
+			remaining.add(payment);
+		}
+		try {
+			persistenceBuffer.awaitPersisted()
+					.then(remaining.isEmpty() ? Mono.empty() : removeInFlight(remaining).then())
+					.then(reactivePersistedRedisTemplate.delete(aliveKey))
+					.block(SHUTDOWN_TIMEOUT);
+		} catch (RuntimeException e) {
+			ackMisses.add(remaining.size());
+		}
+	}
+
+	public long getClaimedCount() {
+		return claimed.sum();
+	}
+
+	public long getNormalizedCount() {
+		return normalized.sum();
+	}
+
+	public long getAckedCount() {
+		return acked.sum();
+	}
+
+	public long getAckBatchCount() {
+		return ackBatches.sum();
+	}
+
+	public long getAckMissCount() {
+		return ackMisses.sum();
+	}
+
+	public long getNackedCount() {
+		return nacked.sum();
+	}
+
+	public long getReclaimedCount() {
+		return reclaimed.sum();
+	}
+
+	public int getPendingAckCount() {
+		return pendingAcks.size();
+	}
+}
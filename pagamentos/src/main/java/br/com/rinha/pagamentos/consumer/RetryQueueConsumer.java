@@ -1,7 +1,8 @@
 package br.com.rinha.pagamentos.consumer;
 
-import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
 import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.routing.ProcessorRouter;
 import br.com.rinha.pagamentos.service.PaymentService;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,55 +12,183 @@ import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class RetryQueueConsumer implements ApplicationListener<ApplicationReadyEvent> {
 
-	private static final String PROCESSING_QUEUE_KEY = "payments:processing-queue";
+	static final String RELIABLE_MODE = "reliable";
+
 	private static final Duration PROCESSORS_UNAVAILABLE_DELAY = Duration.ofMillis(100);
+	private static final Duration REDIS_ERROR_DELAY = Duration.ofMillis(250);
 
 	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveRedisTemplate;
 	private final PaymentService paymentService;
-	private final ProcessorHealthMonitor processorHealthMonitor;
+	private final ProcessorRouter processorRouter;
+	private final ReliableQueue reliableQueue;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder freshFetched = new LongAdder();
+	private final LongAdder retryFetched = new LongAdder();
+	private final LongAdder fetches = new LongAdder();
+	private final LongAdder fetchNanos = new LongAdder();
+	private final AtomicReference<MonoSink<Void>> slotWaiter = new AtomicReference<>();
 
 	@Value("${retry.consumer.concurrency}")
 	private int concurrencyLevel;
 
+	@Value("${retry.consumer.batch-size}")
+	private int batchSize;
+
+	@Value("${retry.consumer.retry-lane-percent}")
+	private int retryLanePercent;
+
+	@Value("${retry.consumer.idle.min-ms}")
+	private long minIdleMillis;
+
+	@Value("${retry.consumer.idle.max-ms}")
+	private long maxIdleMillis;
+
+	private long idleMillis;
+	private boolean freshLaneDrained;
+
 	public RetryQueueConsumer(
 			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveRedisTemplate,
 			PaymentService paymentService,
-			ProcessorHealthMonitor processorHealthMonitor) {
+			ProcessorRouter processorRouter,
+			ReliableQueue reliableQueue) {
 		this.reactiveRedisTemplate = reactiveRedisTemplate;
 		this.paymentService = paymentService;
-		this.processorHealthMonitor = processorHealthMonitor;
+		this.processorRouter = processorRouter;
+		this.reliableQueue = reliableQueue;
 	}
 
 	@Override
 	public void onApplicationEvent(ApplicationReadyEvent event) {
-		this.consumeFromQueue()
+		this.idleMillis = minIdleMillis;
+		Mono<Void> registration = reliableQueue.isEnabled()
+				? reliableQueue.register().onErrorResume(e -> Mono.empty())
+				: Mono.empty();
+		registration.then(this.consumeFromQueue())
 				.subscribeOn(Schedulers.parallel())
 				.subscribe();
 	}
 
 	private Mono<Void> consumeFromQueue() {
-		return Flux.defer(() -> {
-					boolean canProcess = processorHealthMonitor.isDefaultProcessorAvailable() || processorHealthMonitor.isFallbackProcessorAvailable();
-
-					if (canProcess) {
-						return reactiveRedisTemplate.opsForList()
-								.rightPop(PROCESSING_QUEUE_KEY, Duration.ofSeconds(1));
-					} else {
-						return Flux.<QueuedPayment>empty().delaySubscription(PROCESSORS_UNAVAILABLE_DELAY);
-					}
-				})
+		return Mono.defer(this::drainRound)
+				.onErrorResume(e -> Mono.delay(REDIS_ERROR_DELAY).then())
 				.repeat()
-				.parallel(concurrencyLevel)
-				.runOn(Schedulers.parallel())
-				.flatMap(payment -> Mono.fromRunnable(() -> paymentService.processPayment(payment)))
-				.sequential()
 				.then();
 	}
+
+	private Mono<Void> drainRound() {
+		if (!processorRouter.canDispatch()) {
+			return Mono.delay(PROCESSORS_UNAVAILABLE_DELAY).then();
+		}
+
+		int freeSlots = concurrencyLevel - inFlight.get();
+		if (freeSlots <= 0) {
+			return awaitFreeSlot();
+		}
+
+		final int count = Math.min(freeSlots, batchSize);
+		final int retryCount = freshLaneDrained ? count : Math.max(1, count * retryLanePercent / 100);
+		final int freshCount = count - Math.min(retryCount, count);
+		final long startNanos = System.nanoTime();
+
+		Mono<Long> fresh = fetch(RetryScheduler.FRESH_QUEUE_KEY, freshCount).count();
+		Mono<Long> retries = fetch(RetryScheduler.RETRY_QUEUE_KEY, retryCount).count();
+
+		return Mono.zip(fresh, retries)
+				.flatMap(popped -> {
+					fetches.increment();
+					fetchNanos.add(System.nanoTime() - startNanos);
+					freshFetched.add(popped.getT1());
+					retryFetched.add(popped.getT2());
+					freshLaneDrained = popped.getT1() < freshCount;
+					if (popped.getT1() + popped.getT2() > 0) {
+						idleMillis = minIdleMillis;
+						return Mono.empty();
+					}
+					long sleep = idleMillis;
+					idleMillis = Math.min(maxIdleMillis, idleMillis * 2);
+					return Mono.delay(Duration.ofMillis(sleep)).then();
+				});
+	}
+
+	private Flux<QueuedPayment> fetch(String laneKey, int count) {
+		if (count <= 0) {
+			return Flux.empty();
+		}
+		return reliableQueue.isEnabled()
+				? reliableQueue.claim(laneKey, count).doOnNext(this::dispatchReliably)
+				: reactiveRedisTemplate.opsForList().rightPop(laneKey, count).doOnNext(this::dispatch);
+	}
+
+	private void dispatch(QueuedPayment payment) {
+		inFlight.incrementAndGet();
+		paymentService.dispatchQueued(payment)
+				.doFinally(signal -> releaseSlot())
+				.subscribe();
+	}
+
+	private void dispatchReliably(QueuedPayment payment) {
+		inFlight.incrementAndGet();
+		paymentService.tryDispatchQueued(payment)
+				.onErrorReturn(false)
+				.flatMap(delivered -> {
+					if (delivered) {
+						reliableQueue.ack(payment);
+						return Mono.empty();
+					}
+					return reliableQueue.nack(payment);
+				})
+				.doFinally(signal -> releaseSlot())
+				.subscribe(null, e -> { });
+	}
+
+	private void releaseSlot() {
+		inFlight.decrementAndGet();
+		MonoSink<Void> waiter = slotWaiter.getAndSet(null);
+		if (waiter != null) {
+			waiter.success();
+		}
+	}
+
+	private Mono<Void> awaitFreeSlot() {
+		return Mono.create(sink -> {
+			slotWaiter.set(sink);
+			if (inFlight.get() < concurrencyLevel && slotWaiter.compareAndSet(sink, null)) {
+				sink.success();
+			}
+		});
+	}
+
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	public long getFreshFetchedCount() {
+		return freshFetched.sum();
+	}
+
+	public long getRetryFetchedCount() {
+		return retryFetched.sum();
+	}
+
+	public long getFetchCount() {
+		return fetches.sum();
+	}
+
+	public long getMeanFetchMicros() {
+		long count = fetches.sum();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(fetchNanos.sum() / count);
+	}
 }
@@ -0,0 +1,40 @@
+package br.com.rinha.pagamentos.controller;
+
+import br.com.rinha.pagamentos.persistence.PersistenceBuffer;
+import br.com.rinha.pagamentos.summary.LocalSummaryAggregator;
+import br.com.rinha.pagamentos.summary.SummaryExchangeCodec;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@RestController
+@RequestMapping("/internal/summary")
+public class InternalSummaryController {
+
+	private static final Duration PERSISTENCE_AWAIT_TIMEOUT = Duration.ofSeconds(1);
+
+	private final LocalSummaryAggregator aggregator;
+	private final PersistenceBuffer persistenceBuffer;
+
+	public InternalSummaryController(LocalSummaryAggregator aggregator, PersistenceBuffer persistenceBuffer) {
+		this.aggregator = aggregator;
+		this.persistenceBuffer = persistenceBuffer;
+	}
+
+	@GetMapping(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public Mono<ResponseEntity<byte[]>> getLocalSummary(@RequestParam long from, @RequestParam long to) {
+		return persistenceBuffer.awaitPersisted()
+				.timeout(PERSISTENCE_AWAIT_TIMEOUT, Mono.empty())
+				.then(Mono.fromSupplier(() -> {
+					long[] totals = new long[4];
+					boolean covered = aggregator.sum(from, to, totals);
+					return ResponseEntity.ok(SummaryExchangeCodec.encode(covered, totals));
+				}));
+	}
+}
@@ -0,0 +1,157 @@
+package br.com.rinha.pagamentos.controller;
+
+import br.com.rinha.pagamentos.ingest.AdmissionController;
+import br.com.rinha.pagamentos.ingest.IngestBuffer;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.metrics.LatencyHistogram;
+import br.com.rinha.pagamentos.metrics.PaymentMetrics;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.persistence.PersistenceBuffer;
+import br.com.rinha.pagamentos.routing.HedgePolicy;
+import br.com.rinha.pagamentos.routing.ProcessorRouter;
+import br.com.rinha.pagamentos.routing.Route;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/metrics")
+@ConditionalOnProperty(name = "metrics.enabled", havingValue = "true")
+public class MetricsController {
+
+	private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+	private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+	private final PaymentMetrics metrics;
+	private final ProcessorRouter processorRouter;
+	private final PersistenceBuffer persistenceBuffer;
+	private final IngestBuffer ingestBuffer;
+	private final RetryScheduler retryScheduler;
+	private final HedgePolicy hedgePolicy;
+	private final AdmissionController admissionController;
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+
+	public MetricsController(
+			PaymentMetrics metrics,
+			ProcessorRouter processorRouter,
+			PersistenceBuffer persistenceBuffer,
+			IngestBuffer ingestBuffer,
+			RetryScheduler retryScheduler,
+			HedgePolicy hedgePolicy,
+			AdmissionController admissionController,
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate) {
+		this.metrics = metrics;
+		this.processorRouter = processorRouter;
+		this.persistenceBuffer = persistenceBuffer;
+		this.ingestBuffer = ingestBuffer;
+		this.retryScheduler = retryScheduler;
+		this.hedgePolicy = hedgePolicy;
+		this.admissionController = admissionController;
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+	}
+
+	@GetMapping(produces = PROMETHEUS_TEXT)
+	public Mono<String> scrape() {
+		Mono<Long> fresh = reactiveQueuedRedisTemplate.opsForList().size(RetryScheduler.FRESH_QUEUE_KEY).onErrorReturn(-1L);
+		Mono<Long> retry = reactiveQueuedRedisTemplate.opsForList().size(RetryScheduler.RETRY_QUEUE_KEY).onErrorReturn(-1L);
+		Mono<Long> delayed = reactiveQueuedRedisTemplate.opsForZSet().size(RetryScheduler.DELAYED_KEY).onErrorReturn(-1L);
+		return Mono.zip(fresh, retry, delayed)
+				.map(lengths -> render(lengths.getT1(), lengths.getT2(), lengths.getT3()));
+	}
+
+	private String render(long freshLength, long retryLength, long delayedLength) {
+		StringBuilder out = new StringBuilder(4096);
+
+		out.append("# TYPE payments_processor_requests_total counter\n");
+		for (Route route : new Route[]{Route.DEFAULT, Route.FALLBACK}) {
+			for (int outcome = 0; outcome < PaymentMetrics.OUTCOMES.length; outcome++) {
+				out.append("payments_processor_requests_total{processor=\"").append(label(route))
+						.append("\",outcome=\"").append(PaymentMetrics.OUTCOMES[outcome]).append("\"} ")
+						.append(metrics.getOutcomeCount(route, outcome)).append('\n');
+			}
+		}
+
+		out.append("# TYPE payments_processor_latency_seconds summary\n");
+		summary(out, "payments_processor_latency_seconds", "processor=\"default\"", metrics.getLatency(Route.DEFAULT));
+		summary(out, "payments_processor_latency_seconds", "processor=\"fallback\"", metrics.getLatency(Route.FALLBACK));
+
+		out.append("# TYPE payments_queue_wait_seconds summary\n");
+		summary(out, "payments_queue_wait_seconds", null, metrics.getQueueWait());
+
+		out.append("# TYPE payments_summary_query_seconds summary\n");
+		summary(out, "payments_summary_query_seconds", null, metrics.getSummaryQueries());
+
+		out.append("# TYPE payments_routed_total counter\n");
+		out.append("payments_routed_total{route=\"default\"} ").append(processorRouter.getDefaultRouteCount()).append('\n');
+		out.append("payments_routed_total{route=\"fallback\"} ").append(processorRouter.getFallbackRouteCount()).append('\n');
+		out.append("payments_routed_total{route=\"hold\"} ").append(processorRouter.getHoldCount()).append('\n');
+
+		out.append("# TYPE payments_hedges_total counter\n");
+		out.append("payments_hedges_total{outcome=\"parked\"} ").append(hedgePolicy.getHedgedCount()).append('\n');
+		out.append("payments_hedges_total{outcome=\"capped\"} ").append(hedgePolicy.getCappedCount()).append('\n');
+
+		out.append("# TYPE payments_hedge_delay_seconds gauge\n");
+		out.append("payments_hedge_delay_seconds ").append(seconds(hedgePolicy.delay().toNanos() / 1_000)).append('\n');
+
+		out.append("# TYPE payments_requeued_total counter\n");
+		out.append("payments_requeued_total ").append(metrics.getRequeueCount()).append('\n');
+
+		out.append("# TYPE payments_persist_failures_total counter\n");
+		out.append("payments_persist_failures_total{stage=\"batch\"} ").append(persistenceBuffer.getFlushFailureCount()).append('\n');
+		out.append("payments_persist_failures_total{stage=\"enqueue\"} ").append(metrics.getPersistErrorCount()).append('\n');
+
+		out.append("# TYPE payments_ingest_depth gauge\n");
+		out.append("payments_ingest_depth ").append(ingestBuffer.getDepth()).append('\n');
+
+		out.append("# TYPE payments_processing_queue_length gauge\n");
+		out.append("payments_processing_queue_length{lane=\"fresh\"} ").append(freshLength).append('\n');
+		out.append("payments_processing_queue_length{lane=\"retry\"} ").append(retryLength).append('\n');
+		out.append("payments_processing_queue_length{lane=\"delayed\"} ").append(delayedLength).append('\n');
+
+		out.append("# TYPE payments_admission_open gauge\n");
+		out.append("payments_admission_open ").append(admissionController.isAdmitting() ? 1 : 0).append('\n');
+
+		out.append("# TYPE payments_admission_parked gauge\n");
+		out.append("payments_admission_parked ").append(admissionController.getParkedDepth()).append('\n');
+
+		out.append("# TYPE payments_admission_rejected_total counter\n");
+		out.append("payments_admission_rejected_total ").append(admissionController.getRejectedCount()).append('\n');
+
+		out.append("# TYPE payments_redis_memory_used_bytes gauge\n");
+		out.append("payments_redis_memory_used_bytes ").append(admissionController.getUsedMemoryBytes()).append('\n');
+
+		out.append("# TYPE payments_redis_memory_headroom_bytes gauge\n");
+		out.append("payments_redis_memory_headroom_bytes ").append(admissionController.getMemoryHeadroomBytes()).append('\n');
+
+		out.append("# TYPE payments_retry_max_attempts gauge\n");
+		out.append("payments_retry_max_attempts ").append(retryScheduler.getMaxAttempts()).append('\n');
+
+		return out.toString();
+	}
+
+	private static void summary(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+		for (double quantile : QUANTILES) {
+			out.append(name).append("{");
+			if (labels != null) {
+				out.append(labels).append(',');
+			}
+			out.append("quantile=\"").append(quantile).append("\"} ")
+					.append(seconds(histogram.percentileMicros(quantile * 100))).append('\n');
+		}
+		String suffix = labels == null ? " " : "{" + labels + "} ";
+		out.append(name).append("_sum").append(suffix).append(seconds(histogram.getSumMicros())).append('\n');
+		out.append(name).append("_count").append(suffix).append(histogram.getCount()).append('\n');
+	}
+
+	private static String seconds(long micros) {
+		return String.valueOf(micros / 1_000_000.0);
+	}
+
+	private static String label(Route route) {
+		return route == Route.FALLBACK ? "fallback" : "default";
+	}
+}
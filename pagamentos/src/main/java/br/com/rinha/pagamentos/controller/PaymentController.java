@@ -1,7 +1,9 @@
 package br.com.rinha.pagamentos.controller;
 
+import br.com.rinha.pagamentos.ingest.AdmissionController;
 import br.com.rinha.pagamentos.model.QueuedPayment;
-import br.com.rinha.pagamentos.service.PaymentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -12,16 +14,26 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/payments")
 public class PaymentController {
 
-	private final PaymentService paymentService;
+	private static final String RETRY_AFTER_SECONDS = "1";
 
-	public PaymentController(PaymentService paymentService) {
-		this.paymentService = paymentService;
+	private final AdmissionController admissionController;
+	private final int rejectStatus;
+
+	public PaymentController(
+			AdmissionController admissionController,
+			@Value("${admission.reject-status}") int rejectStatus) {
+		this.admissionController = admissionController;
+		this.rejectStatus = rejectStatus;
 	}
 
 	@PostMapping
 	public ResponseEntity<Void> createPayment(@RequestBody QueuedPayment request) {
 
-		paymentService.handlePayment(request);
+		if (!admissionController.admit(request)) {
+			return ResponseEntity.status(rejectStatus)
+					.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+					.build();
+		}
 
 		return ResponseEntity.noContent().build();
 	}
@@ -0,0 +1,244 @@
+package br.com.rinha.pagamentos.controller;
+
+import br.com.rinha.pagamentos.consumer.ReliableQueue;
+import br.com.rinha.pagamentos.consumer.RetryQueueConsumer;
+import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
+import br.com.rinha.pagamentos.http.ConnectionPoolStats;
+import br.com.rinha.pagamentos.http.ProcessorHttpClients;
+import br.com.rinha.pagamentos.idempotency.CompletedPaymentIndex;
+import br.com.rinha.pagamentos.ingest.AdmissionController;
+import br.com.rinha.pagamentos.ingest.IngestBuffer;
+import br.com.rinha.pagamentos.ingest.RedisSpillWriter;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.metrics.ThroughputTracker;
+import br.com.rinha.pagamentos.persistence.JournalReplayer;
+import br.com.rinha.pagamentos.persistence.PaymentJournal;
+import br.com.rinha.pagamentos.persistence.PersistenceBuffer;
+import br.com.rinha.pagamentos.persistence.PersistenceWatermark;
+import br.com.rinha.pagamentos.routing.HedgePolicy;
+import br.com.rinha.pagamentos.routing.ProcessorRouter;
+import br.com.rinha.pagamentos.service.PaymentService;
+import br.com.rinha.pagamentos.service.StartupWarmup;
+import br.com.rinha.pagamentos.service.VirtualThreadPaymentEngine;
+import br.com.rinha.pagamentos.summary.SummaryBarrier;
+import br.com.rinha.pagamentos.summary.SummaryCache;
+import com.sun.management.OperatingSystemMXBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/internal/stats")
+public class StatsController {
+
+	private final IngestBuffer ingestBuffer;
+	private final RedisSpillWriter spillWriter;
+	private final RetryScheduler retryScheduler;
+	private final PersistenceBuffer persistenceBuffer;
+	private final RetryQueueConsumer retryQueueConsumer;
+	private final ReliableQueue reliableQueue;
+	private final PaymentService paymentService;
+	private final ProcessorRouter processorRouter;
+	private final ProcessorHttpClients httpClients;
+	private final CompletedPaymentIndex completedPaymentIndex;
+	private final VirtualThreadPaymentEngine virtualThreadEngine;
+	private final SummaryCache summaryCache;
+	private final SummaryBarrier summaryBarrier;
+	private final PersistenceWatermark persistenceWatermark;
+	private final StartupWarmup startupWarmup;
+	private final ProcessorHealthMonitor healthMonitor;
+	private final HedgePolicy hedgePolicy;
+	private final PaymentJournal journal;
+	private final JournalReplayer journalReplayer;
+	private final AdmissionController admissionController;
+	private final ThroughputTracker throughputTracker;
+	private final OperatingSystemMXBean operatingSystem = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+	private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+	public StatsController(
+			IngestBuffer ingestBuffer,
+			RedisSpillWriter spillWriter,
+			RetryScheduler retryScheduler,
+			PersistenceBuffer persistenceBuffer,
+			RetryQueueConsumer retryQueueConsumer,
+			ReliableQueue reliableQueue,
+			PaymentService paymentService,
+			ProcessorRouter processorRouter,
+			ProcessorHttpClients httpClients,
+			CompletedPaymentIndex completedPaymentIndex,
+			VirtualThreadPaymentEngine virtualThreadEngine,
+			SummaryCache summaryCache,
+			SummaryBarrier summaryBarrier,
+			PersistenceWatermark persistenceWatermark,
+			StartupWarmup startupWarmup,
+			ProcessorHealthMonitor healthMonitor,
+			HedgePolicy hedgePolicy,
+			PaymentJournal journal,
+			JournalReplayer journalReplayer,
+			AdmissionController admissionController,
+			ThroughputTracker throughputTracker) {
+		this.ingestBuffer = ingestBuffer;
+		this.spillWriter = spillWriter;
+		this.retryScheduler = retryScheduler;
+		this.persistenceBuffer = persistenceBuffer;
+		this.retryQueueConsumer = retryQueueConsumer;
+		this.reliableQueue = reliableQueue;
+		this.paymentService = paymentService;
+		this.processorRouter = processorRouter;
+		this.httpClients = httpClients;
+		this.completedPaymentIndex = completedPaymentIndex;
+		this.virtualThreadEngine = virtualThreadEngine;
+		this.summaryCache = summaryCache;
+		this.summaryBarrier = summaryBarrier;
+		this.persistenceWatermark = persistenceWatermark;
+		this.startupWarmup = startupWarmup;
+		this.healthMonitor = healthMonitor;
+		this.hedgePolicy = hedgePolicy;
+		this.journal = journal;
+		this.journalReplayer = journalReplayer;
+		this.admissionController = admissionController;
+		this.throughputTracker = throughputTracker;
+	}
+
+	@GetMapping
+	public ResponseEntity<Map<String, Long>> getStats() {
+		Map<String, Long> stats = new LinkedHashMap<>();
+		stats.put("ingest.depth", (long) ingestBuffer.getDepth());
+		stats.put("ingest.capacity", (long) ingestBuffer.getCapacity());
+		stats.put("ingest.accepted", ingestBuffer.getAcceptedCount());
+		stats.put("ingest.overflowed", ingestBuffer.getOverflowCount());
+		stats.put("ingest.dispatched", ingestBuffer.getDispatchedCount());
+		stats.put("ingest.spilled", ingestBuffer.getSpilledCount());
+		stats.put("ingest.in-flight", (long) ingestBuffer.getInFlightCount());
+		stats.put("ingest.permit-waits", ingestBuffer.getPermitWaitCount());
+		stats.put("admission.open", admissionController.isAdmitting() ? 1L : 0L);
+		stats.put("admission.queue-length", admissionController.getQueueLength());
+		stats.put("admission.redis-used-bytes", admissionController.getUsedMemoryBytes());
+		stats.put("admission.redis-headroom-bytes", admissionController.getMemoryHeadroomBytes());
+		stats.put("admission.parked-depth", (long) admissionController.getParkedDepth());
+		stats.put("admission.parked", admissionController.getParkedCount());
+		stats.put("admission.rejected", admissionController.getRejectedCount());
+		stats.put("admission.closes", admissionController.getCloseCount());
+		stats.put("admission.sample-failures", admissionController.getSampleFailureCount());
+		stats.put("engine.virtual", ingestBuffer.isVirtualThreadMode() ? 1L : 0L);
+		stats.put("engine.virtual.running", (long) virtualThreadEngine.getRunningCount());
+		stats.put("engine.virtual.submitted", virtualThreadEngine.getSubmittedCount());
+		stats.put("engine.virtual.delivered", virtualThreadEngine.getDeliveredCount());
+		stats.put("engine.virtual.requeued", virtualThreadEngine.getRequeuedCount());
+		stats.put("engine.virtual.saturated", virtualThreadEngine.getSaturatedCount());
+		stats.put("startup.ready-uptime-ms", throughputTracker.getReadyUptimeMillis());
+		stats.put("startup.warmup-ms", startupWarmup.getWarmupMillis());
+		stats.put("startup.warmup-failures", startupWarmup.getFailureCount());
+		stats.put("throughput.peak-per-second", throughputTracker.getPeakPerSecond());
+		stats.put("throughput.time-to-peak-ms", throughputTracker.getTimeToPeakMillis());
+		stats.put("process.cpu-time-us", operatingSystem.getProcessCpuTime() / 1_000);
+		stats.put("process.heap-used-bytes", memory.getHeapMemoryUsage().getUsed());
+		stats.put("process.non-heap-used-bytes", memory.getNonHeapMemoryUsage().getUsed());
+		stats.put("spill.depth", (long) spillWriter.getPendingDepth());
+		stats.put("spill.capacity", (long) spillWriter.getCapacity());
+		stats.put("spill.spilled", spillWriter.getSpilledCount());
+		stats.put("spill.flushed-batches", spillWriter.getFlushedBatchCount());
+		stats.put("spill.direct-pushes", spillWriter.getDirectPushCount());
+		stats.put("spill.dropped", spillWriter.getDroppedCount());
+		stats.put("persist.pending", (long) persistenceBuffer.getPendingCount());
+		stats.put("persist.persisted", persistenceBuffer.getPersistedCount());
+		stats.put("persist.journaled", (long) persistenceBuffer.getJournaledCount());
+		stats.put("persist.flushes", persistenceBuffer.getFlushCount());
+		stats.put("persist.flush-failures", persistenceBuffer.getFlushFailureCount());
+		stats.put("persist.direct-writes", persistenceBuffer.getDirectWriteCount());
+		stats.put("persist.duplicates-suppressed", persistenceBuffer.getDuplicatesSuppressedCount());
+		stats.put("journal.enabled", journal.isEnabled() ? 1L : 0L);
+		stats.put("journal.pending", (long) journal.getPendingCount());
+		stats.put("journal.appended", journal.getAppendedCount());
+		stats.put("journal.replayed", journal.getReplayedCount());
+		stats.put("journal.rejected", journal.getRejectedCount());
+		stats.put("journal.fsyncs", journal.getSyncCount());
+		stats.put("journal.replay-failures", journalReplayer.getFailureCount());
+		stats.put("dedup.lookups", completedPaymentIndex.getLookupCount());
+		stats.put("dedup.local-hits", completedPaymentIndex.getLocalHitCount());
+		stats.put("dedup.remote-lookups", completedPaymentIndex.getRemoteLookupCount());
+		stats.put("dedup.remote-hits", completedPaymentIndex.getRemoteHitCount());
+		stats.put("dedup.entries", completedPaymentIndex.getEntryCount());
+		stats.put("dedup.rotations", completedPaymentIndex.getRotationCount());
+		stats.put("dedup.memory-bytes", completedPaymentIndex.getMemoryBytes());
+		stats.put("retry.in-flight", (long) retryQueueConsumer.getInFlightCount());
+		stats.put("retry.fetches", retryQueueConsumer.getFetchCount());
+		stats.put("retry.fetch-mean-us", retryQueueConsumer.getMeanFetchMicros());
+		stats.put("retry.lane.fresh-fetched", retryQueueConsumer.getFreshFetchedCount());
+		stats.put("retry.lane.retry-fetched", retryQueueConsumer.getRetryFetchedCount());
+		stats.put("retry.backoff.scheduled", retryScheduler.getScheduledCount());
+		stats.put("retry.backoff.promoted", retryScheduler.getPromotedCount());
+		stats.put("retry.backoff.schedule-failures", retryScheduler.getScheduleFailureCount());
+		stats.put("retry.backoff.max-attempts", (long) retryScheduler.getMaxAttempts());
+		stats.put("retry.reliable.claimed", reliableQueue.getClaimedCount());
+		stats.put("retry.reliable.acked", reliableQueue.getAckedCount());
+		stats.put("retry.reliable.ack-batches", reliableQueue.getAckBatchCount());
+		stats.put("retry.reliable.ack-misses", reliableQueue.getAckMissCount());
+		stats.put("retry.reliable.pending-acks", (long) reliableQueue.getPendingAckCount());
+		stats.put("retry.reliable.nacked", reliableQueue.getNackedCount());
+		stats.put("retry.reliable.reclaimed", reliableQueue.getReclaimedCount());
+		stats.put("retry.reliable.normalized", reliableQueue.getNormalizedCount());
+		stats.put("summary.local-hits", paymentService.getLocalSummaryHitCount());
+		stats.put("summary.redis-queries", paymentService.getRedisSummaryQueryCount());
+		stats.put("summary.cache.hits", summaryCache.getHitCount());
+		stats.put("summary.cache.coalesced", summaryCache.getCoalescedCount());
+		stats.put("summary.cache.loads", summaryCache.getLoadCount());
+		stats.put("summary.cache.saved", summaryCache.getHitCount() + summaryCache.getCoalescedCount());
+		stats.put("summary.cache.stored", summaryCache.getStoredCount());
+		stats.put("summary.cache.evictions", summaryCache.getEvictionCount());
+		stats.put("summary.cache.invalidations", summaryCache.getInvalidationCount());
+		stats.put("summary.cache.remote-invalidations", summaryCache.getRemoteInvalidationCount());
+		stats.put("summary.cache.size", (long) summaryCache.getSize());
+		stats.put("summary.barrier.immediate", summaryBarrier.getImmediateCount());
+		stats.put("summary.barrier.waited", summaryBarrier.getWaitedCount());
+		stats.put("summary.barrier.timeouts", summaryBarrier.getTimeoutCount());
+		stats.put("summary.barrier.mean-wait-micros", summaryBarrier.getMeanWaitMicros());
+		stats.put("summary.barrier.publishes", summaryBarrier.getPublishCount());
+		stats.put("summary.barrier.pruned", summaryBarrier.getPrunedCount());
+		stats.put("persist.unwritten", persistenceWatermark.getPendingCount());
+		stats.put("persist.watermark-lag-ms", System.currentTimeMillis() - persistenceWatermark.current());
+		stats.put("routing.default", processorRouter.getDefaultRouteCount());
+		stats.put("routing.fallback", processorRouter.getFallbackRouteCount());
+		stats.put("routing.hold", processorRouter.getHoldCount());
+		stats.put("routing.default.latency-ewma-us", (long) (processorRouter.getDefaultStats().latencyMillis() * 1000));
+		stats.put("routing.fallback.latency-ewma-us", (long) (processorRouter.getFallbackStats().latencyMillis() * 1000));
+		stats.put("routing.default.failures", processorRouter.getDefaultStats().getFailureCount());
+		stats.put("routing.fallback.failures", processorRouter.getFallbackStats().getFailureCount());
+		stats.put("health.epoch", healthMonitor.getSnapshot().epoch());
+		stats.put("health.probes", healthMonitor.getProbeCount());
+		stats.put("health.applied", healthMonitor.getAppliedCount());
+		stats.put("health.stale", healthMonitor.getStaleCount());
+		stats.put("health.rate-limited", healthMonitor.getRateLimitedCount());
+		stats.put("routing.default.breaker-state", (long) processorRouter.getDefaultBreakerState());
+		stats.put("routing.fallback.breaker-state", (long) processorRouter.getFallbackBreakerState());
+		stats.put("routing.default.limit", (long) processorRouter.getDefaultLimiter().currentLimit());
+		stats.put("routing.fallback.limit", (long) processorRouter.getFallbackLimiter().currentLimit());
+		stats.put("routing.default.in-flight", (long) processorRouter.getDefaultLimiter().getInFlight());
+		stats.put("routing.fallback.in-flight", (long) processorRouter.getFallbackLimiter().getInFlight());
+		stats.put("routing.default.shed", processorRouter.getDefaultLimiter().getRejectedCount());
+		stats.put("routing.fallback.shed", processorRouter.getFallbackLimiter().getRejectedCount());
+		stats.put("routing.hedge.delay-us", hedgePolicy.delay().toNanos() / 1_000);
+		stats.put("routing.hedge.parked", hedgePolicy.getHedgedCount());
+		stats.put("routing.hedge.capped", hedgePolicy.getCappedCount());
+		putPoolStats(stats, httpClients.getDefaultPoolStats());
+		putPoolStats(stats, httpClients.getFallbackPoolStats());
+		putPoolStats(stats, httpClients.getHealthPoolStats());
+		return ResponseEntity.ok(stats);
+	}
+
+	private static void putPoolStats(Map<String, Long> stats, ConnectionPoolStats pool) {
+		String prefix = "http." + pool.getPoolName() + ".";
+		stats.put(prefix + "acquired", pool.getAcquiredConnections());
+		stats.put(prefix + "idle", pool.getIdleConnections());
+		stats.put(prefix + "pending-acquires", pool.getPendingAcquires());
+		stats.put(prefix + "acquire-count", pool.getAcquireCount());
+		stats.put(prefix + "acquire-mean-us", pool.getMeanAcquireMicros());
+		stats.put(prefix + "acquire-max-us", pool.getMaxAcquireMicros());
+	}
+}
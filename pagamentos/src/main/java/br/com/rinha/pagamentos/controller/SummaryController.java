@@ -1,6 +1,5 @@
 package br.com.rinha.pagamentos.controller;
 
-import java.time.Duration;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -8,6 +7,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
 import br.com.rinha.pagamentos.service.PaymentService;
+import br.com.rinha.pagamentos.summary.SummaryBarrier;
 import reactor.core.publisher.Mono;
 
 @RestController
@@ -15,9 +15,11 @@ import reactor.core.publisher.Mono;
 public class SummaryController {
 
 	private final PaymentService paymentService;
+	private final SummaryBarrier summaryBarrier;
 
-	public SummaryController(PaymentService paymentService) {
+	public SummaryController(PaymentService paymentService, SummaryBarrier summaryBarrier) {
 		this.paymentService = paymentService;
+		this.summaryBarrier = summaryBarrier;
 	}
 
 	@GetMapping
@@ -25,8 +27,8 @@ public class SummaryController {
 			@RequestParam(required = false) String from,
 			@RequestParam(required = false) String to) {
 
-		return paymentService.getPaymentsSummary(from, to)
-				.delaySubscription(Duration.ofMillis(1111))
+		return summaryBarrier.awaitPersistedThrough(to)
+				.then(paymentService.getPaymentsSummary(from, to))
 				.map(ResponseEntity::ok);
 	}
 }
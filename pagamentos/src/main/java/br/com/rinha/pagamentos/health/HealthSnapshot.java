@@ -0,0 +1,50 @@
+package br.com.rinha.pagamentos.health;
+
+import br.com.rinha.pagamentos.model.HealthCheckResponse;
+
+public record HealthSnapshot(
+		long epoch,
+		boolean defaultAvailable,
+		int defaultMinResponseTime,
+		boolean fallbackAvailable,
+		int fallbackMinResponseTime) {
+
+	public static final HealthSnapshot UNKNOWN = new HealthSnapshot(0, false, 0, false, 0);
+
+	static final String MESSAGE_PREFIX = "health|";
+
+	public static HealthSnapshot of(long epoch, HealthCheckResponse defaultHealth, HealthCheckResponse fallbackHealth) {
+		return new HealthSnapshot(epoch,
+				!defaultHealth.isFailing(), defaultHealth.getMinResponseTime(),
+				!fallbackHealth.isFailing(), fallbackHealth.getMinResponseTime());
+	}
+
+	public HealthCheckResponse defaultHealth() {
+		return new HealthCheckResponse(!defaultAvailable, defaultMinResponseTime);
+	}
+
+	public HealthCheckResponse fallbackHealth() {
+		return new HealthCheckResponse(!fallbackAvailable, fallbackMinResponseTime);
+	}
+
+	public String encodeState() {
+		return (defaultAvailable ? "1|" : "0|") + defaultMinResponseTime + (fallbackAvailable ? "|1|" : "|0|") + fallbackMinResponseTime;
+	}
+
+	public static HealthSnapshot decode(String message) {
+		if (message == null || !message.startsWith(MESSAGE_PREFIX)) {
+			return null;
+		}
+		String[] parts = message.split("\\|");
+		if (parts.length != 6) {
+			return null;
+		}
+		try {
+			return new HealthSnapshot(Long.parseLong(parts[1]),
+					"1".equals(parts[2]), Integer.parseInt(parts[3]),
+					"1".equals(parts[4]), Integer.parseInt(parts[5]));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
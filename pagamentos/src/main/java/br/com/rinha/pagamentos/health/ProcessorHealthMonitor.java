@@ -1,125 +1,198 @@
 package br.com.rinha.pagamentos.health;
 
+import br.com.rinha.pagamentos.http.ProcessorHttpClients;
 import br.com.rinha.pagamentos.model.HealthCheckResponse;
-import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.listener.ChannelTopic;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class ProcessorHealthMonitor implements MessageListener {
 
-	private static final String HEALTH_STATUS_DEFAULT_KEY = "health:status:default";
-	private static final String HEALTH_STATUS_FALLBACK_KEY = "health:status:fallback";
+	private static final String HEALTH_SNAPSHOT_KEY = "health:snapshot";
+	private static final String HEALTH_EPOCH_KEY = "health:epoch";
+	private static final String HEALTH_PROBE_LEASE_KEY = "health:probe-lease";
 	private static final String HEALTH_NOTIFICATION_CHANNEL = "health:notifications";
 	private static final ChannelTopic NOTIFICATION_TOPIC = new ChannelTopic(HEALTH_NOTIFICATION_CHANNEL);
+	private static final HealthCheckResponse UNREACHABLE = new HealthCheckResponse(true, 0);
+	private static final HealthCheckResponse RATE_LIMITED = new HealthCheckResponse(false, 0);
+
+	private static final RedisScript<Long> PUBLISH_SCRIPT =
+			new DefaultRedisScript<>(
+					"local epoch = redis.call('INCR', KEYS[1]) " +
+							"local message = ARGV[1] .. epoch .. '|' .. ARGV[2] " +
+							"redis.call('SET', KEYS[2], message) " +
+							"redis.call('PUBLISH', ARGV[3], message) " +
+							"return epoch",
+					Long.class
+			);
 
 	private final WebClient webClient;
 	private final ReactiveStringRedisTemplate reactiveRedisTemplate;
 	private final String defaultHealthUrl;
 	private final String fallbackHealthUrl;
+	private final String nodeId = UUID.randomUUID().toString();
+	private final Duration probeInterval;
+	private final long probeTickMillis;
+	private final List<String> publishKeys = List.of(HEALTH_EPOCH_KEY, HEALTH_SNAPSHOT_KEY);
 
-	private volatile boolean isDefaultAvailable = false;
-	private volatile boolean isFallbackAvailable = false;
+	private final AtomicReference<HealthSnapshot> snapshot = new AtomicReference<>(HealthSnapshot.UNKNOWN);
+	private final AtomicBoolean probing = new AtomicBoolean();
+	private volatile long nextLeaseAttemptMillis;
+
+	private final LongAdder probes = new LongAdder();
+	private final LongAdder applied = new LongAdder();
+	private final LongAdder stale = new LongAdder();
+	private final LongAdder rateLimited = new LongAdder();
 
 	public ProcessorHealthMonitor(
-			WebClient.Builder webClientBuilder,
+			ProcessorHttpClients httpClients,
 			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactiveRedisTemplate,
 			@Value("${processor.default.health.url}") String defaultHealthUrl,
-			@Value("${processor.fallback.health.url}") String fallbackHealthUrl) {
+			@Value("${processor.fallback.health.url}") String fallbackHealthUrl,
+			@Value("${health.probe.interval-ms}") long probeIntervalMillis,
+			@Value("${health.probe.tick-ms}") long probeTickMillis) {
 
-		this.webClient = webClientBuilder.build();
+		this.webClient = httpClients.health();
 		this.reactiveRedisTemplate = reactiveRedisTemplate;
 		this.defaultHealthUrl = defaultHealthUrl;
 		this.fallbackHealthUrl = fallbackHealthUrl;
+		this.probeInterval = Duration.ofMillis(probeIntervalMillis);
+		this.probeTickMillis = probeTickMillis;
 
 		syncStateFromRedis().subscribe();
 	}
 
-	@Async("virtualThreadExecutor")
-	@Scheduled(fixedRate = 5150)
-	@SchedulerLock(name = "processorHealthCheckLock", lockAtMostFor = "4s", lockAtLeastFor = "4s")
+	@Scheduled(fixedRateString = "${health.probe.tick-ms}")
 	public void scheduleHealthCheck() {
-		performHealthCheckAndNotify().subscribe();
+		if (System.currentTimeMillis() < nextLeaseAttemptMillis || !probing.compareAndSet(false, true)) {
+			return;
+		}
+		reactiveRedisTemplate.opsForValue()
+				.setIfAbsent(HEALTH_PROBE_LEASE_KEY, nodeId, probeInterval)
+				.flatMap(leased -> leased ? performHealthCheckAndNotify() : Mono.empty())
+				.doFinally(signal -> probing.set(false))
+				.subscribe(null, e -> { });
 	}
 
 	public Mono<Void> performHealthCheckAndNotify() {
-		Mono<Boolean> defaultCheck = checkHealthAsync(defaultHealthUrl);
-		Mono<Boolean> fallbackCheck = checkHealthAsync(fallbackHealthUrl);
+		Mono<HealthCheckResponse> defaultCheck = checkHealthAsync(defaultHealthUrl);
+		Mono<HealthCheckResponse> fallbackCheck = checkHealthAsync(fallbackHealthUrl);
 
 		return Mono.zip(defaultCheck, fallbackCheck)
+				.doOnNext(results -> probes.increment())
 				.flatMap(results -> {
-					boolean isDefaultOk = results.getT1();
-					boolean isFallbackOk = results.getT2();
-
-					Mono<Boolean> setDefault = reactiveRedisTemplate.opsForValue().set(HEALTH_STATUS_DEFAULT_KEY, isDefaultOk ? "1" : "0");
-					Mono<Boolean> setFallback = reactiveRedisTemplate.opsForValue().set(HEALTH_STATUS_FALLBACK_KEY, isFallbackOk ? "1" : "0");
-
-					return Mono.when(setDefault, setFallback)
-							.then(reactiveRedisTemplate.convertAndSend(HEALTH_NOTIFICATION_CHANNEL, "updated"));
-				})
-				.onErrorResume(e -> {
-					Mono<Boolean> setDefault = reactiveRedisTemplate.opsForValue().set(HEALTH_STATUS_DEFAULT_KEY, "0");
-					Mono<Boolean> setFallback = reactiveRedisTemplate.opsForValue().set(HEALTH_STATUS_FALLBACK_KEY, "0");
-					return Mono.when(setDefault, setFallback)
-							.then(reactiveRedisTemplate.convertAndSend(HEALTH_NOTIFICATION_CHANNEL, "updated"));
+					if (results.getT1() == RATE_LIMITED && results.getT2() == RATE_LIMITED) {
+						return Mono.empty();
+					}
+					HealthSnapshot previous = snapshot.get();
+					HealthCheckResponse defaultHealth = results.getT1() == RATE_LIMITED ? previous.defaultHealth() : results.getT1();
+					HealthCheckResponse fallbackHealth = results.getT2() == RATE_LIMITED ? previous.fallbackHealth() : results.getT2();
+					HealthSnapshot probed = HealthSnapshot.of(0, defaultHealth, fallbackHealth);
+					return reactiveRedisTemplate
+							.execute(PUBLISH_SCRIPT, publishKeys,
+									List.of(HealthSnapshot.MESSAGE_PREFIX, probed.encodeState(), HEALTH_NOTIFICATION_CHANNEL))
+							.next()
+							.doOnNext(epoch -> apply(HealthSnapshot.of(epoch, defaultHealth, fallbackHealth)))
+							.onErrorResume(e -> {
+								replaceLocally(probed);
+								return Mono.empty();
+							});
 				})
 				.then();
 	}
 
 	@Override
 	public void onMessage(Message message, byte[] pattern) {
-		syncStateFromRedis().subscribe();
+		HealthSnapshot received = HealthSnapshot.decode(new String(message.getBody(), StandardCharsets.UTF_8));
+		if (received != null) {
+			apply(received);
+		}
 	}
 
 	private Mono<Void> syncStateFromRedis() {
-		return reactiveRedisTemplate.opsForValue().multiGet(List.of(HEALTH_STATUS_DEFAULT_KEY, HEALTH_STATUS_FALLBACK_KEY))
-				.doOnSuccess(statuses -> {
-					if (statuses != null && statuses.size() == 2) {
-						this.isDefaultAvailable = Objects.equals(statuses.get(0), "1");
-						this.isFallbackAvailable = Objects.equals(statuses.get(1), "1");
-					} else {
-						this.isDefaultAvailable = false;
-						this.isFallbackAvailable = false;
+		return reactiveRedisTemplate.opsForValue().get(HEALTH_SNAPSHOT_KEY)
+				.doOnNext(encoded -> {
+					HealthSnapshot stored = HealthSnapshot.decode(encoded);
+					if (stored != null) {
+						apply(stored);
 					}
 				})
-				.doOnError(e -> {
-					this.isDefaultAvailable = false;
-					this.isFallbackAvailable = false;
-				})
+				.onErrorResume(e -> Mono.empty())
 				.then();
 	}
 
-	private Mono<Boolean> checkHealthAsync(String url) {
+	private void apply(HealthSnapshot received) {
+		HealthSnapshot current;
+		do {
+			current = snapshot.get();
+			if (received.epoch() <= current.epoch()) {
+				stale.increment();
+				return;
+			}
+		} while (!snapshot.compareAndSet(current, received));
+		applied.increment();
+		nextLeaseAttemptMillis = System.currentTimeMillis() + probeInterval.toMillis() - probeTickMillis;
+	}
+
+	private void replaceLocally(HealthSnapshot probed) {
+		HealthSnapshot current = snapshot.get();
+		snapshot.compareAndSet(current, new HealthSnapshot(current.epoch(),
+				probed.defaultAvailable(), probed.defaultMinResponseTime(),
+				probed.fallbackAvailable(), probed.fallbackMinResponseTime()));
+	}
+
+	private Mono<HealthCheckResponse> checkHealthAsync(String url) {
 		return webClient.get()
 				.uri(url)
 				.retrieve()
 				.bodyToMono(HealthCheckResponse.class)
-				.map(response -> !response.isFailing())
-				.onErrorReturn(false);
+				.onErrorResume(WebClientResponseException.TooManyRequests.class, e -> {
+					rateLimited.increment();
+					return Mono.just(RATE_LIMITED);
+				})
+				.onErrorReturn(UNREACHABLE);
 	}
 
 	public ChannelTopic getTopic() {
 		return NOTIFICATION_TOPIC;
 	}
 
-	public boolean isDefaultProcessorAvailable() {
-		return isDefaultAvailable;
+	public HealthSnapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	public long getProbeCount() {
+		return probes.sum();
+	}
+
+	public long getAppliedCount() {
+		return applied.sum();
+	}
+
+	public long getStaleCount() {
+		return stale.sum();
 	}
 
-	public boolean isFallbackProcessorAvailable() {
-		return isFallbackAvailable;
+	public long getRateLimitedCount() {
+		return rateLimited.sum();
 	}
 }
@@ -0,0 +1,74 @@
+package br.com.rinha.pagamentos.http;
+
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPoolStats implements ConnectionProvider.MeterRegistrar {
+
+	private final String poolName;
+	private final LongAdder acquires = new LongAdder();
+	private final LongAdder acquireNanos = new LongAdder();
+	private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+	private volatile ConnectionPoolMetrics metrics;
+
+	public ConnectionPoolStats(String poolName) {
+		this.poolName = poolName;
+	}
+
+	@Override
+	public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+		this.metrics = null;
+	}
+
+	void recordAcquire(long nanos) {
+		acquires.increment();
+		acquireNanos.add(nanos);
+		long max;
+		while (nanos > (max = maxAcquireNanos.get()) && !maxAcquireNanos.compareAndSet(max, nanos)) {
+			Thread.onSpinWait();
+		}
+	}
+
+	public String getPoolName() {
+		return poolName;
+	}
+
+	public long getAcquiredConnections() {
+		ConnectionPoolMetrics current = metrics;
+		return current == null ? 0 : current.acquiredSize();
+	}
+
+	public long getIdleConnections() {
+		ConnectionPoolMetrics current = metrics;
+		return current == null ? 0 : current.idleSize();
+	}
+
+	public long getPendingAcquires() {
+		ConnectionPoolMetrics current = metrics;
+		return current == null ? 0 : current.pendingAcquireSize();
+	}
+
+	public long getAcquireCount() {
+		return acquires.sum();
+	}
+
+	public long getMeanAcquireMicros() {
+		long count = acquires.sum();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / count);
+	}
+
+	public long getMaxAcquireMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get());
+	}
+}
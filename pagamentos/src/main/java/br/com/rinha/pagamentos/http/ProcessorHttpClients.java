@@ -0,0 +1,147 @@
+package br.com.rinha.pagamentos.http;
+
+import br.com.rinha.pagamentos.routing.Route;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Component
+public class ProcessorHttpClients {
+
+	private static final String ACQUIRE_STARTED_AT = "http.acquire-started-at";
+	private static final int HEALTH_POOL_CONNECTIONS = 2;
+
+	private final ConnectionProvider defaultProvider;
+	private final ConnectionProvider fallbackProvider;
+	private final ConnectionProvider healthProvider;
+	private final ConnectionPoolStats defaultPoolStats = new ConnectionPoolStats("processor-default");
+	private final ConnectionPoolStats fallbackPoolStats = new ConnectionPoolStats("processor-fallback");
+	private final ConnectionPoolStats healthPoolStats = new ConnectionPoolStats("processor-health");
+
+	private final WebClient defaultClient;
+	private final WebClient fallbackClient;
+	private final WebClient healthClient;
+
+	private final String defaultBaseUrl;
+	private final String fallbackBaseUrl;
+	private final int prewarmConnections;
+
+	public ProcessorHttpClients(
+			WebClient.Builder webClientBuilder,
+			@Value("${processor.default.base.url}") String defaultBaseUrl,
+			@Value("${processor.fallback.base.url}") String fallbackBaseUrl,
+			@Value("${http.client.payments.max-connections}") int maxConnections,
+			@Value("${http.client.payments.pending-acquire-max}") int pendingAcquireMax,
+			@Value("${http.client.payments.pending-acquire-timeout-ms}") long pendingAcquireTimeoutMillis,
+			@Value("${http.client.payments.response-timeout-ms}") long paymentResponseTimeoutMillis,
+			@Value("${http.client.health.response-timeout-ms}") long healthResponseTimeoutMillis,
+			@Value("${http.client.connect-timeout-ms}") int connectTimeoutMillis,
+			@Value("${http.client.max-idle-ms}") long maxIdleMillis,
+			@Value("${http.client.prewarm-connections}") int prewarmConnections) {
+		this.defaultBaseUrl = defaultBaseUrl;
+		this.fallbackBaseUrl = fallbackBaseUrl;
+		this.prewarmConnections = Math.min(prewarmConnections, maxConnections);
+
+		Duration pendingAcquireTimeout = Duration.ofMillis(pendingAcquireTimeoutMillis);
+		Duration maxIdle = Duration.ofMillis(maxIdleMillis);
+		this.defaultProvider = pool(defaultPoolStats, maxConnections, pendingAcquireMax, pendingAcquireTimeout, maxIdle);
+		this.fallbackProvider = pool(fallbackPoolStats, maxConnections, pendingAcquireMax, pendingAcquireTimeout, maxIdle);
+		this.healthProvider = pool(healthPoolStats, HEALTH_POOL_CONNECTIONS, HEALTH_POOL_CONNECTIONS, pendingAcquireTimeout, maxIdle);
+
+		Duration paymentResponseTimeout = Duration.ofMillis(paymentResponseTimeoutMillis);
+		this.defaultClient = client(webClientBuilder, defaultProvider, defaultPoolStats, connectTimeoutMillis, paymentResponseTimeout);
+		this.fallbackClient = client(webClientBuilder, fallbackProvider, fallbackPoolStats, connectTimeoutMillis, paymentResponseTimeout);
+		this.healthClient = client(webClientBuilder, healthProvider, healthPoolStats, connectTimeoutMillis, Duration.ofMillis(healthResponseTimeoutMillis));
+	}
+
+	private static ConnectionProvider pool(ConnectionPoolStats stats, int maxConnections, int pendingAcquireMax,
+			Duration pendingAcquireTimeout, Duration maxIdle) {
+		return ConnectionProvider.builder(stats.getPoolName())
+				.maxConnections(maxConnections)
+				.pendingAcquireMaxCount(pendingAcquireMax)
+				.pendingAcquireTimeout(pendingAcquireTimeout)
+				.maxIdleTime(maxIdle)
+				.evictInBackground(maxIdle)
+				.lifo()
+				.metrics(true, () -> stats)
+				.build();
+	}
+
+	private static WebClient client(WebClient.Builder webClientBuilder, ConnectionProvider provider, ConnectionPoolStats stats,
+			int connectTimeoutMillis, Duration responseTimeout) {
+		HttpClient httpClient = HttpClient.create(provider)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+				.option(ChannelOption.TCP_NODELAY, true)
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.keepAlive(true)
+				.compress(false)
+				.responseTimeout(responseTimeout)
+				.doOnRequest((request, connection) -> {
+					long startedAt = request.currentContextView().getOrDefault(ACQUIRE_STARTED_AT, 0L);
+					if (startedAt != 0L) {
+						stats.recordAcquire(System.nanoTime() - startedAt);
+					}
+				});
+
+		ExchangeFilterFunction acquireTimer = (request, next) -> next.exchange(request)
+				.contextWrite(context -> context.put(ACQUIRE_STARTED_AT, System.nanoTime()));
+
+		return webClientBuilder.clone()
+				.clientConnector(new ReactorClientHttpConnector(httpClient))
+				.filter(acquireTimer)
+				.build();
+	}
+
+	public Mono<Void> prewarm() {
+		if (prewarmConnections <= 0) {
+			return Mono.empty();
+		}
+		return Mono.when(prewarm(defaultClient, defaultBaseUrl), prewarm(fallbackClient, fallbackBaseUrl));
+	}
+
+	private Mono<Void> prewarm(WebClient client, String baseUrl) {
+		return Flux.range(0, prewarmConnections)
+				.flatMap(i -> client.head()
+						.uri(baseUrl)
+						.exchangeToMono(response -> response.releaseBody())
+						.onErrorResume(e -> Mono.empty()), prewarmConnections)
+				.then();
+	}
+
+	@PreDestroy
+	public void dispose() {
+		defaultProvider.dispose();
+		fallbackProvider.dispose();
+		healthProvider.dispose();
+	}
+
+	public WebClient forRoute(Route route) {
+		return route == Route.FALLBACK ? fallbackClient : defaultClient;
+	}
+
+	public WebClient health() {
+		return healthClient;
+	}
+
+	public ConnectionPoolStats getDefaultPoolStats() {
+		return defaultPoolStats;
+	}
+
+	public ConnectionPoolStats getFallbackPoolStats() {
+		return fallbackPoolStats;
+	}
+
+	public ConnectionPoolStats getHealthPoolStats() {
+		return healthPoolStats;
+	}
+}
@@ -0,0 +1,123 @@
+package br.com.rinha.pagamentos.idempotency;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class CompletedPaymentIndex {
+
+	public static final String COMPLETED_KEY_PREFIX = "payments:completed:";
+
+	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
+	private final int generationSlots;
+
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder localHits = new LongAdder();
+	private final LongAdder remoteLookups = new LongAdder();
+	private final LongAdder remoteHits = new LongAdder();
+	private final LongAdder rotations = new LongAdder();
+
+	private volatile LongPairSet current;
+	private volatile LongPairSet previous;
+
+	public CompletedPaymentIndex(
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
+			@Value("${dedup.local.slots}") int generationSlots) {
+		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
+		this.generationSlots = generationSlots;
+		this.current = new LongPairSet(generationSlots);
+		this.previous = new LongPairSet(2);
+	}
+
+	public boolean isCompleted(long msb, long lsb) {
+		lookups.increment();
+		if (current.contains(msb, lsb) || previous.contains(msb, lsb)) {
+			localHits.increment();
+			return true;
+		}
+		return false;
+	}
+
+	public Mono<Boolean> isCompletedAnywhere(long msb, long lsb) {
+		if (isCompleted(msb, lsb)) {
+			return Mono.just(true);
+		}
+		remoteLookups.increment();
+		return reactivePersistedRedisTemplate.hasKey(completedKey(msb, lsb))
+				.doOnNext(found -> {
+					if (found) {
+						remoteHits.increment();
+						markCompleted(msb, lsb);
+					}
+				})
+				.onErrorReturn(false);
+	}
+
+	public boolean markCompleted(long msb, long lsb) {
+		if (previous.contains(msb, lsb)) {
+			return false;
+		}
+		for (;;) {
+			LongPairSet generation = current;
+			int added = generation.add(msb, lsb);
+			if (added >= 0) {
+				if (generation.isFull()) {
+					rotate(generation);
+				}
+				if (added == 1) {
+					LongPairSet older = previous;
+					return older == generation || !older.contains(msb, lsb);
+				}
+				return false;
+			}
+			rotate(generation);
+		}
+	}
+
+	private synchronized void rotate(LongPairSet full) {
+		if (current != full) {
+			return;
+		}
+		previous = full;
+		current = new LongPairSet(generationSlots);
+		rotations.increment();
+	}
+
+	public static String completedKey(long msb, long lsb) {
+		return COMPLETED_KEY_PREFIX + new UUID(msb, lsb);
+	}
+
+	public long getLookupCount() {
+		return lookups.sum();
+	}
+
+	public long getLocalHitCount() {
+		return localHits.sum();
+	}
+
+	public long getRemoteLookupCount() {
+		return remoteLookups.sum();
+	}
+
+	public long getRemoteHitCount() {
+		return remoteHits.sum();
+	}
+
+	public long getRotationCount() {
+		return rotations.sum();
+	}
+
+	public long getEntryCount() {
+		return (long) current.size() + previous.size();
+	}
+
+	public long getMemoryBytes() {
+		return current.memoryBytes() + previous.memoryBytes();
+	}
+}
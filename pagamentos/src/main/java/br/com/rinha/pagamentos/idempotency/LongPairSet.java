@@ -0,0 +1,90 @@
+package br.com.rinha.pagamentos.idempotency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class LongPairSet {
+
+	private static final long EMPTY = 0L;
+	private static final long ZERO_KEY = 0x9E3779B97F4A7C15L;
+	private static final int MAX_PROBES = 16;
+
+	private final int mask;
+	private final int maxEntries;
+	private final AtomicLongArray slots;
+	private final AtomicInteger size = new AtomicInteger();
+
+	LongPairSet(int requestedSlots) {
+		int capacity = 2;
+		while (capacity < requestedSlots) {
+			capacity <<= 1;
+		}
+		this.mask = capacity - 1;
+		this.maxEntries = capacity / 2;
+		this.slots = new AtomicLongArray(capacity * 2);
+	}
+
+	boolean contains(long msb, long lsb) {
+		long key = msb == EMPTY ? ZERO_KEY : msb;
+		long value = lsb == EMPTY ? ZERO_KEY : lsb;
+		int index = hash(msb, lsb) & mask;
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int base = index << 1;
+			long stored = slots.get(base);
+			if (stored == EMPTY) {
+				return false;
+			}
+			if (stored == key && awaitValue(base + 1) == value) {
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	int add(long msb, long lsb) {
+		long key = msb == EMPTY ? ZERO_KEY : msb;
+		long value = lsb == EMPTY ? ZERO_KEY : lsb;
+		int index = hash(msb, lsb) & mask;
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int base = index << 1;
+			long stored = slots.get(base);
+			if (stored == EMPTY && slots.compareAndSet(base, EMPTY, key)) {
+				slots.set(base + 1, value);
+				size.incrementAndGet();
+				return 1;
+			}
+			stored = slots.get(base);
+			if (stored == key && awaitValue(base + 1) == value) {
+				return 0;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	private long awaitValue(int index) {
+		long value;
+		while ((value = slots.get(index)) == EMPTY) {
+			Thread.onSpinWait();
+		}
+		return value;
+	}
+
+	boolean isFull() {
+		return size.get() >= maxEntries;
+	}
+
+	int size() {
+		return size.get();
+	}
+
+	long memoryBytes() {
+		return (long) slots.length() * Long.BYTES;
+	}
+
+	private static int hash(long msb, long lsb) {
+		long h = (msb ^ Long.rotateLeft(lsb, 29)) * 0xBF58476D1CE4E5B9L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
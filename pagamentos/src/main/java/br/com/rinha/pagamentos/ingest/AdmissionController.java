@@ -0,0 +1,169 @@
+package br.com.rinha.pagamentos.ingest;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.persistence.PaymentJournal;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class AdmissionController {
+
+	private static final String USED_MEMORY = "used_memory";
+	private static final String MAX_MEMORY = "maxmemory";
+	private static final byte NO_PROCESSOR = 0;
+
+	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+	private final IngestBuffer ingestBuffer;
+	private final PaymentJournal journal;
+	private final boolean enabled;
+	private final long queueHigh;
+	private final long queueLow;
+	private final double memoryHigh;
+	private final double memoryLow;
+	private final long fallbackMemoryLimit;
+
+	private final AtomicBoolean sampling = new AtomicBoolean();
+	private final LongAdder parked = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder closes = new LongAdder();
+	private final LongAdder sampleFailures = new LongAdder();
+
+	private volatile boolean admitting = true;
+	private volatile long queueLength;
+	private volatile long usedMemory;
+	private volatile long memoryLimit;
+
+	public AdmissionController(
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
+			IngestBuffer ingestBuffer,
+			PaymentJournal journal,
+			@Value("${admission.enabled}") boolean enabled,
+			@Value("${admission.queue.high}") long queueHigh,
+			@Value("${admission.queue.low}") long queueLow,
+			@Value("${admission.memory.high-percent}") double memoryHighPercent,
+			@Value("${admission.memory.low-percent}") double memoryLowPercent,
+			@Value("${admission.memory.limit-bytes}") long fallbackMemoryLimit) {
+		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+		this.ingestBuffer = ingestBuffer;
+		this.journal = journal;
+		this.enabled = enabled;
+		this.queueHigh = queueHigh;
+		this.queueLow = queueLow;
+		this.memoryHigh = memoryHighPercent / 100.0;
+		this.memoryLow = memoryLowPercent / 100.0;
+		this.fallbackMemoryLimit = fallbackMemoryLimit;
+		this.memoryLimit = fallbackMemoryLimit;
+	}
+
+	public boolean admit(QueuedPayment payment) {
+		if (admitting) {
+			ingestBuffer.accept(payment);
+			return true;
+		}
+		payment.markReceived(System.currentTimeMillis());
+		if (journal.append(PaymentJournal.KIND_ENQUEUE, NO_PROCESSOR, payment.getAttempts(),
+				payment.getCorrelationIdMsb(), payment.getCorrelationIdLsb(), payment.getAmountCents(),
+				payment.getReceivedAtMillis())) {
+			parked.increment();
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	@Scheduled(fixedDelayString = "${admission.sample-interval-ms}")
+	public void sample() {
+		if (!enabled || !sampling.compareAndSet(false, true)) {
+			return;
+		}
+
+		Mono<Long> fresh = reactiveQueuedRedisTemplate.opsForList().size(RetryScheduler.FRESH_QUEUE_KEY);
+		Mono<Long> retry = reactiveQueuedRedisTemplate.opsForList().size(RetryScheduler.RETRY_QUEUE_KEY);
+		Mono<Long> delayed = reactiveQueuedRedisTemplate.opsForZSet().size(RetryScheduler.DELAYED_KEY);
+		Mono<Properties> memory = reactivePersistedRedisTemplate
+				.execute(connection -> connection.serverCommands().info("memory"))
+				.next();
+
+		Mono.zip(fresh, retry, delayed, memory)
+				.doFinally(signal -> sampling.set(false))
+				.subscribe(
+						sample -> update(sample.getT1() + sample.getT2() + sample.getT3(), sample.getT4()),
+						e -> sampleFailures.increment());
+	}
+
+	private void update(long length, Properties memory) {
+		long used = parseLong(memory.getProperty(USED_MEMORY), usedMemory);
+		long max = parseLong(memory.getProperty(MAX_MEMORY), 0);
+		long limit = max > 0 ? max : fallbackMemoryLimit;
+		queueLength = length;
+		usedMemory = used;
+		memoryLimit = limit;
+
+		double memoryRatio = (double) used / limit;
+		if (admitting && (length >= queueHigh || memoryRatio >= memoryHigh)) {
+			admitting = false;
+			closes.increment();
+		} else if (!admitting && length <= queueLow && memoryRatio <= memoryLow) {
+			admitting = true;
+		}
+	}
+
+	private static long parseLong(String value, long defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	public boolean isAdmitting() {
+		return admitting;
+	}
+
+	public long getQueueLength() {
+		return queueLength;
+	}
+
+	public long getUsedMemoryBytes() {
+		return usedMemory;
+	}
+
+	public long getMemoryHeadroomBytes() {
+		return memoryLimit - usedMemory;
+	}
+
+	public int getParkedDepth() {
+		return journal.getPendingEnqueueCount();
+	}
+
+	public long getParkedCount() {
+		return parked.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	public long getCloseCount() {
+		return closes.sum();
+	}
+
+	public long getSampleFailureCount() {
+		return sampleFailures.sum();
+	}
+}
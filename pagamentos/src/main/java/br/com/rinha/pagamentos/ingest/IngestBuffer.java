@@ -0,0 +1,220 @@
+package br.com.rinha.pagamentos.ingest;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.service.PaymentService;
+import br.com.rinha.pagamentos.service.VirtualThreadPaymentEngine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+public class IngestBuffer implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final long PERMIT_WAIT_MILLIS = 100L;
+	private static final int IDLE_SPINS = 64;
+	private static final String VIRTUAL_ENGINE = "virtual";
+
+	private final MpmcRing<QueuedPayment> ring;
+	private final PaymentService paymentService;
+	private final VirtualThreadPaymentEngine virtualThreadEngine;
+	private final RedisSpillWriter spillWriter;
+	private final boolean virtualThreadMode;
+	private final int dispatcherCount;
+	private final int batchSize;
+	private final int maxInFlight;
+	private final Semaphore inFlight;
+	private final Runnable releaseInFlight;
+
+	private final Thread[] dispatchers;
+	private final AtomicIntegerArray parked;
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder overflowed = new LongAdder();
+	private final LongAdder dispatched = new LongAdder();
+	private final LongAdder spilled = new LongAdder();
+	private final LongAdder permitWaits = new LongAdder();
+
+	private volatile boolean running;
+
+	public IngestBuffer(
+			PaymentService paymentService,
+			VirtualThreadPaymentEngine virtualThreadEngine,
+			RedisSpillWriter spillWriter,
+			@Value("${pipeline.engine}") String engine,
+			@Value("${ingest.buffer.capacity}") int capacity,
+			@Value("${ingest.dispatcher.workers}") int dispatcherCount,
+			@Value("${ingest.dispatcher.batch-size}") int batchSize,
+			@Value("${ingest.dispatcher.max-in-flight}") int maxInFlight) {
+		this.ring = new MpmcRing<>(capacity);
+		this.paymentService = paymentService;
+		this.virtualThreadEngine = virtualThreadEngine;
+		this.spillWriter = spillWriter;
+		this.virtualThreadMode = VIRTUAL_ENGINE.equals(engine);
+		this.dispatcherCount = dispatcherCount;
+		this.batchSize = batchSize;
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.releaseInFlight = inFlight::release;
+		this.dispatchers = new Thread[dispatcherCount];
+		this.parked = new AtomicIntegerArray(dispatcherCount);
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		running = true;
+		for (int i = 0; i < dispatcherCount; i++) {
+			final int index = i;
+			dispatchers[i] = Thread.ofVirtual()
+					.name("ingest-dispatcher-" + i)
+					.start(() -> dispatchLoop(index));
+		}
+	}
+
+	public void accept(QueuedPayment payment) {
+		payment.markReceived(System.currentTimeMillis());
+		if (ring.offer(payment)) {
+			accepted.increment();
+			wakeDispatcher();
+			return;
+		}
+		overflowed.increment();
+		spillWriter.spill(payment);
+	}
+
+	private void wakeDispatcher() {
+		for (int i = 0; i < dispatcherCount; i++) {
+			if (parked.get(i) == 1 && parked.compareAndSet(i, 1, 0)) {
+				LockSupport.unpark(dispatchers[i]);
+				return;
+			}
+		}
+	}
+
+	private void dispatchLoop(int index) {
+		QueuedPayment[] batch = new QueuedPayment[batchSize];
+		int idleSpins = 0;
+
+		while (running) {
+			int drained = ring.drainTo(batch, batchSize);
+			if (drained == 0) {
+				if (++idleSpins < IDLE_SPINS) {
+					Thread.onSpinWait();
+				} else {
+					idleSpins = 0;
+					park(index);
+				}
+				continue;
+			}
+
+			idleSpins = 0;
+			int handed = 0;
+			for (int i = 0; i < drained; i++) {
+				QueuedPayment payment = batch[i];
+				batch[i] = null;
+				if (!acquireInFlight()) {
+					spill(payment);
+					continue;
+				}
+				try {
+					if (virtualThreadMode) {
+						virtualThreadEngine.submit(payment, releaseInFlight);
+					} else {
+						paymentService.processPayment(payment, releaseInFlight);
+					}
+					handed++;
+				} catch (RuntimeException e) {
+					inFlight.release();
+					spill(payment);
+				}
+			}
+			dispatched.add(handed);
+		}
+	}
+
+	private void spill(QueuedPayment payment) {
+		spilled.increment();
+		spillWriter.spill(payment);
+	}
+
+	private boolean acquireInFlight() {
+		if (inFlight.tryAcquire()) {
+			return true;
+		}
+		permitWaits.increment();
+		try {
+			while (running) {
+				if (inFlight.tryAcquire(PERMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	private void park(int index) {
+		parked.set(index, 1);
+		if (ring.isEmpty() && running) {
+			LockSupport.park(this);
+		}
+		parked.set(index, 0);
+	}
+
+	@PreDestroy
+	public void drainOnShutdown() {
+		running = false;
+		for (Thread dispatcher : dispatchers) {
+			if (dispatcher != null) {
+				LockSupport.unpark(dispatcher);
+			}
+		}
+		QueuedPayment payment;
+		while ((payment = ring.poll()) != null) {
+			spill(payment);
+		}
+	}
+
+	public boolean isVirtualThreadMode() {
+		return virtualThreadMode;
+	}
+
+	public int getDepth() {
+		return ring.size();
+	}
+
+	public int getCapacity() {
+		return ring.capacity();
+	}
+
+	public long getAcceptedCount() {
+		return accepted.sum();
+	}
+
+	public long getOverflowCount() {
+		return overflowed.sum();
+	}
+
+	public long getDispatchedCount() {
+		return dispatched.sum();
+	}
+
+	public long getSpilledCount() {
+		return spilled.sum();
+	}
+
+	public int getInFlightCount() {
+		return maxInFlight - inFlight.availablePermits();
+	}
+
+	public long getPermitWaitCount() {
+		return permitWaits.sum();
+	}
+}
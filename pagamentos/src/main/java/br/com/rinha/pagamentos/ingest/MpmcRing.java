@@ -0,0 +1,101 @@
+package br.com.rinha.pagamentos.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class MpmcRing<E> {
+
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final AtomicReferenceArray<E> slots;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	public MpmcRing(int requestedCapacity) {
+		int capacity = 2;
+		while (capacity < requestedCapacity) {
+			capacity <<= 1;
+		}
+		this.mask = capacity - 1;
+		this.sequences = new AtomicLongArray(capacity);
+		this.slots = new AtomicReferenceArray<>(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	public boolean offer(E element) {
+		return offerAndGetPosition(element) >= 0;
+	}
+
+	public long offerAndGetPosition(E element) {
+		long position = tail.get();
+		for (;;) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots.setPlain(index, element);
+					sequences.set(index, position + 1);
+					return position;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return -1;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	public E poll() {
+		long position = head.get();
+		for (;;) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					E element = slots.getPlain(index);
+					slots.setPlain(index, null);
+					sequences.set(index, position + mask + 1);
+					return element;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	public int drainTo(E[] target, int limit) {
+		int max = Math.min(limit, target.length);
+		int drained = 0;
+		while (drained < max) {
+			E element = poll();
+			if (element == null) {
+				break;
+			}
+			target[drained++] = element;
+		}
+		return drained;
+	}
+
+	public int size() {
+		long size = tail.get() - head.get();
+		if (size < 0) {
+			return 0;
+		}
+		return (int) Math.min(size, capacity());
+	}
+
+	public boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,158 @@
+package br.com.rinha.pagamentos.ingest;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.persistence.PaymentJournal;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class RedisSpillWriter {
+
+	private static final String PROCESSING_QUEUE_KEY = "payments:processing-queue";
+	private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+	private final PaymentJournal journal;
+	private final MpmcRing<QueuedPayment> pending;
+	private final int batchSize;
+	private final int maxInFlightFlushes;
+
+	private final AtomicInteger inFlightFlushes = new AtomicInteger();
+	private final LongAdder spilled = new LongAdder();
+	private final LongAdder flushedBatches = new LongAdder();
+	private final LongAdder directPushes = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	public RedisSpillWriter(
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
+			PaymentJournal journal,
+			@Value("${ingest.spill.capacity}") int capacity,
+			@Value("${ingest.spill.batch-size}") int batchSize,
+			@Value("${ingest.spill.max-in-flight}") int maxInFlightFlushes) {
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+		this.journal = journal;
+		this.pending = new MpmcRing<>(capacity);
+		this.batchSize = batchSize;
+		this.maxInFlightFlushes = maxInFlightFlushes;
+	}
+
+	public void spill(QueuedPayment payment) {
+		spilled.increment();
+		if (!pending.offer(payment)) {
+			directPushes.increment();
+			reactiveQueuedRedisTemplate.opsForList()
+					.leftPush(PROCESSING_QUEUE_KEY, payment)
+					.subscribe(null, e -> journalOrDrop(payment));
+			return;
+		}
+		if (pending.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${ingest.spill.flush-interval-ms}")
+	public void scheduledFlush() {
+		boolean flushed = true;
+		while (flushed && !pending.isEmpty()) {
+			flushed = flush();
+		}
+	}
+
+	private boolean flush() {
+		if (inFlightFlushes.incrementAndGet() > maxInFlightFlushes) {
+			inFlightFlushes.decrementAndGet();
+			return false;
+		}
+
+		List<QueuedPayment> batch = drainBatch();
+		if (batch.isEmpty()) {
+			inFlightFlushes.decrementAndGet();
+			return false;
+		}
+
+		reactiveQueuedRedisTemplate.opsForList()
+				.leftPushAll(PROCESSING_QUEUE_KEY, batch)
+				.doFinally(signal -> inFlightFlushes.decrementAndGet())
+				.subscribe(size -> flushedBatches.increment(), e -> restore(batch));
+		return true;
+	}
+
+	private List<QueuedPayment> drainBatch() {
+		List<QueuedPayment> batch = new ArrayList<>(batchSize);
+		QueuedPayment payment;
+		while (batch.size() < batchSize && (payment = pending.poll()) != null) {
+			batch.add(payment);
+		}
+		return batch;
+	}
+
+	private void restore(List<QueuedPayment> batch) {
+		for (QueuedPayment payment : batch) {
+			if (!pending.offer(payment)) {
+				journalOrDrop(payment);
+			}
+		}
+	}
+
+	private void journalOrDrop(QueuedPayment payment) {
+		if (!journal.append(PaymentJournal.KIND_ENQUEUE, (byte) 0, payment.getAttempts(),
+				payment.getCorrelationIdMsb(), payment.getCorrelationIdLsb(), payment.getAmountCents(),
+				payment.getReceivedAtMillis())) {
+			dropped.increment();
+		}
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		List<QueuedPayment> remaining = new ArrayList<>(pending.size());
+		QueuedPayment payment;
+		while ((payment = pending.poll()) != null) {
+			remaining.add(payment);
+		}
+		if (remaining.isEmpty()) {
+			return;
+		}
+		try {
+			reactiveQueuedRedisTemplate.opsForList()
+					.leftPushAll(PROCESSING_QUEUE_KEY, remaining)
+					.block(SHUTDOWN_FLUSH_TIMEOUT);
+		} catch (RuntimeException e) {
+			remaining.forEach(this::journalOrDrop);
+			journal.sync();
+		}
+	}
+
+	public int getPendingDepth() {
+		return pending.size();
+	}
+
+	public int getCapacity() {
+		return pending.capacity();
+	}
+
+	public long getSpilledCount() {
+		return spilled.sum();
+	}
+
+	public long getFlushedBatchCount() {
+		return flushedBatches.sum();
+	}
+
+	public long getDirectPushCount() {
+		return directPushes.sum();
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+}
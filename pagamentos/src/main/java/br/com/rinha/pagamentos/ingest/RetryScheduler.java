@@ -0,0 +1,125 @@
+package br.com.rinha.pagamentos.ingest;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class RetryScheduler {
+
+	public static final String FRESH_QUEUE_KEY = "payments:processing-queue";
+	public static final String RETRY_QUEUE_KEY = "payments:retry-queue";
+	public static final String DELAYED_KEY = "payments:retry-delayed";
+
+	private static final int MAX_BACKOFF_SHIFT = 20;
+
+	private static final RedisScript<Long> PROMOTE_SCRIPT =
+			new DefaultRedisScript<>(
+					"local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+							"if #due == 0 then return 0 end " +
+							"redis.call('LPUSH', KEYS[2], unpack(due)) " +
+							"redis.call('ZREM', KEYS[1], unpack(due)) " +
+							"return #due",
+					Long.class
+			);
+
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
+	private final RedisSpillWriter spillWriter;
+	private final long baseBackoffMillis;
+	private final long maxBackoffMillis;
+	private final int promoteBatchSize;
+	private final List<String> promoteKeys = List.of(DELAYED_KEY, RETRY_QUEUE_KEY);
+
+	private final AtomicBoolean promoting = new AtomicBoolean();
+	private final AtomicInteger maxAttempts = new AtomicInteger();
+	private final LongAdder scheduled = new LongAdder();
+	private final LongAdder promoted = new LongAdder();
+	private final LongAdder scheduleFailures = new LongAdder();
+
+	public RetryScheduler(
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
+			RedisSpillWriter spillWriter,
+			@Value("${retry.backoff.base-ms}") long baseBackoffMillis,
+			@Value("${retry.backoff.max-ms}") long maxBackoffMillis,
+			@Value("${retry.backoff.promote-batch-size}") int promoteBatchSize) {
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
+		this.spillWriter = spillWriter;
+		this.baseBackoffMillis = baseBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.promoteBatchSize = promoteBatchSize;
+	}
+
+	public QueuedPayment nextAttempt(QueuedPayment payment) {
+		QueuedPayment next = payment.nextAttempt();
+		maxAttempts.accumulateAndGet(next.getAttempts(), Math::max);
+		scheduled.increment();
+		return next;
+	}
+
+	public long readyAtMillis(int attempts) {
+		int shift = Math.min(Math.max(attempts - 1, 0), MAX_BACKOFF_SHIFT);
+		long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << shift);
+		long half = backoff >>> 1;
+		return System.currentTimeMillis() + half + ThreadLocalRandom.current().nextLong(half + 1);
+	}
+
+	public void schedule(QueuedPayment payment) {
+		QueuedPayment next = nextAttempt(payment);
+		reactiveQueuedRedisTemplate.opsForZSet()
+				.add(DELAYED_KEY, next, readyAtMillis(next.getAttempts()))
+				.subscribe(null, e -> {
+					scheduleFailures.increment();
+					spillWriter.spill(next);
+				});
+	}
+
+	@Scheduled(fixedDelayString = "${retry.backoff.promote-interval-ms}")
+	public void promoteDue() {
+		if (!promoting.compareAndSet(false, true)) {
+			return;
+		}
+		promoteOnce()
+				.expand(moved -> moved >= promoteBatchSize ? promoteOnce() : Mono.empty())
+				.doFinally(signal -> promoting.set(false))
+				.subscribe(promoted::add, e -> { });
+	}
+
+	private Mono<Long> promoteOnce() {
+		return reactivePersistedRedisTemplate
+				.execute(PROMOTE_SCRIPT, promoteKeys,
+						List.of(String.valueOf(System.currentTimeMillis()), String.valueOf(promoteBatchSize)))
+				.next();
+	}
+
+	public long getScheduledCount() {
+		return scheduled.sum();
+	}
+
+	public long getPromotedCount() {
+		return promoted.sum();
+	}
+
+	public long getScheduleFailureCount() {
+		return scheduleFailures.sum();
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts.get();
+	}
+}
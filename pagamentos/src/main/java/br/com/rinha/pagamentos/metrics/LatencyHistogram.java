@@ -0,0 +1,75 @@
+package br.com.rinha.pagamentos.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 36;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+
+	public void recordNanos(long nanos) {
+		recordMicros(nanos / 1_000);
+	}
+
+	public void recordMicros(long micros) {
+		long value = Math.max(0, micros);
+		counts.getAndIncrement(bucketOf(value));
+		count.increment();
+		sumMicros.add(value);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSumMicros() {
+		return sumMicros.sum();
+	}
+
+	public long percentileMicros(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return upperBoundOf(i);
+			}
+		}
+		return upperBoundOf(BUCKETS - 1);
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(value));
+		int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = bucket % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return ((long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+	}
+}
@@ -0,0 +1,139 @@
+package br.com.rinha.pagamentos.metrics;
+
+import br.com.rinha.pagamentos.routing.Route;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PaymentMetrics {
+
+	public static final int STATUS_2XX = 0;
+	public static final int STATUS_4XX = 1;
+	public static final int STATUS_5XX = 2;
+	public static final int STATUS_OTHER = 3;
+	public static final int ERROR_TIMEOUT = 4;
+	public static final int ERROR_CONNECT = 5;
+	public static final int ERROR_OTHER = 6;
+	public static final String[] OUTCOMES = {"2xx", "4xx", "5xx", "other", "timeout", "connect_error", "error"};
+
+	private final boolean enabled;
+	private final LatencyHistogram defaultLatency = new LatencyHistogram();
+	private final LatencyHistogram fallbackLatency = new LatencyHistogram();
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+	private final LatencyHistogram summaryQueries = new LatencyHistogram();
+	private final LongAdder[] defaultOutcomes = newAdders(OUTCOMES.length);
+	private final LongAdder[] fallbackOutcomes = newAdders(OUTCOMES.length);
+	private final LongAdder requeues = new LongAdder();
+	private final LongAdder persistErrors = new LongAdder();
+
+	public PaymentMetrics(@Value("${metrics.enabled}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	private static LongAdder[] newAdders(int size) {
+		LongAdder[] adders = new LongAdder[size];
+		for (int i = 0; i < size; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void recordProcessorResponse(Route route, int status, long latencyNanos) {
+		if (!enabled) {
+			return;
+		}
+		int outcome = status >= 200 && status < 300 ? STATUS_2XX
+				: status >= 400 && status < 500 ? STATUS_4XX
+				: status >= 500 ? STATUS_5XX
+				: STATUS_OTHER;
+		record(route, outcome, latencyNanos);
+	}
+
+	public void recordProcessorError(Route route, Throwable error, long latencyNanos) {
+		if (!enabled) {
+			return;
+		}
+		record(route, classify(error), latencyNanos);
+	}
+
+	private void record(Route route, int outcome, long latencyNanos) {
+		if (route == Route.FALLBACK) {
+			fallbackOutcomes[outcome].increment();
+			fallbackLatency.recordNanos(latencyNanos);
+		} else {
+			defaultOutcomes[outcome].increment();
+			defaultLatency.recordNanos(latencyNanos);
+		}
+	}
+
+	private static int classify(Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof TimeoutException
+					|| cause instanceof io.netty.handler.timeout.TimeoutException
+					|| cause instanceof java.net.http.HttpTimeoutException) {
+				return ERROR_TIMEOUT;
+			}
+			if (cause instanceof ConnectException) {
+				return ERROR_CONNECT;
+			}
+		}
+		return ERROR_OTHER;
+	}
+
+	public void recordQueueWait(long receivedAtMillis) {
+		if (!enabled || receivedAtMillis == 0) {
+			return;
+		}
+		queueWait.recordMicros((System.currentTimeMillis() - receivedAtMillis) * 1_000);
+	}
+
+	public void recordRequeue() {
+		if (enabled) {
+			requeues.increment();
+		}
+	}
+
+	public void recordPersistError() {
+		if (enabled) {
+			persistErrors.increment();
+		}
+	}
+
+	public void recordSummaryQuery(long latencyNanos) {
+		if (enabled) {
+			summaryQueries.recordNanos(latencyNanos);
+		}
+	}
+
+	public LatencyHistogram getLatency(Route route) {
+		return route == Route.FALLBACK ? fallbackLatency : defaultLatency;
+	}
+
+	public long getOutcomeCount(Route route, int outcome) {
+		return (route == Route.FALLBACK ? fallbackOutcomes : defaultOutcomes)[outcome].sum();
+	}
+
+	public LatencyHistogram getQueueWait() {
+		return queueWait;
+	}
+
+	public LatencyHistogram getSummaryQueries() {
+		return summaryQueries;
+	}
+
+	public long getRequeueCount() {
+		return requeues.sum();
+	}
+
+	public long getPersistErrorCount() {
+		return persistErrors.sum();
+	}
+}
@@ -0,0 +1,84 @@
+package br.com.rinha.pagamentos.metrics;
+
+import br.com.rinha.pagamentos.ingest.IngestBuffer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+@Component
+public class ThroughputTracker implements ApplicationListener<ApplicationReadyEvent> {
+
+	private static final long WINDOW_MILLIS = 100;
+	private static final int WINDOWS = 1200;
+	private static final double PEAK_RATIO = 0.9;
+
+	private final IngestBuffer ingestBuffer;
+	private final long[] windowCounts = new long[WINDOWS];
+
+	private volatile long readyUptimeMillis = -1;
+	private volatile int recorded;
+	private int firstTrafficWindow = -1;
+	private long lastAccepted;
+
+	public ThroughputTracker(IngestBuffer ingestBuffer) {
+		this.ingestBuffer = ingestBuffer;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		lastAccepted = ingestBuffer.getAcceptedCount();
+		readyUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+	}
+
+	@Scheduled(fixedRate = WINDOW_MILLIS)
+	public void sample() {
+		if (readyUptimeMillis < 0 || recorded >= WINDOWS) {
+			return;
+		}
+		long accepted = ingestBuffer.getAcceptedCount();
+		long count = accepted - lastAccepted;
+		lastAccepted = accepted;
+		if (firstTrafficWindow < 0) {
+			if (count == 0) {
+				return;
+			}
+			firstTrafficWindow = recorded;
+		}
+		windowCounts[recorded] = count;
+		recorded++;
+	}
+
+	public long getReadyUptimeMillis() {
+		return readyUptimeMillis;
+	}
+
+	public long getPeakPerSecond() {
+		return peakWindowCount() * (1000 / WINDOW_MILLIS);
+	}
+
+	public long getTimeToPeakMillis() {
+		long peak = peakWindowCount();
+		if (peak == 0) {
+			return -1;
+		}
+		int windows = recorded;
+		for (int i = 0; i < windows; i++) {
+			if (windowCounts[i] >= peak * PEAK_RATIO) {
+				return i * WINDOW_MILLIS;
+			}
+		}
+		return -1;
+	}
+
+	private long peakWindowCount() {
+		long peak = 0;
+		int windows = recorded;
+		for (int i = 0; i < windows; i++) {
+			peak = Math.max(peak, windowCounts[i]);
+		}
+		return peak;
+	}
+}
@@ -3,6 +3,7 @@ package br.com.rinha.pagamentos.model;
 public class HealthCheckResponse {
 
 	private boolean failing;
+	private int minResponseTime;
 
 	public HealthCheckResponse() {
 	}
@@ -11,6 +12,11 @@ public class HealthCheckResponse {
 		this.failing = failing;
 	}
 
+	public HealthCheckResponse(boolean failing, int minResponseTime) {
+		this.failing = failing;
+		this.minResponseTime = minResponseTime;
+	}
+
 	public boolean isFailing() {
 		return failing;
 	}
@@ -19,4 +25,12 @@ public class HealthCheckResponse {
 		this.failing = failing;
 	}
 
+	public int getMinResponseTime() {
+		return minResponseTime;
+	}
+
+	public void setMinResponseTime(int minResponseTime) {
+		this.minResponseTime = minResponseTime;
+	}
+
 }
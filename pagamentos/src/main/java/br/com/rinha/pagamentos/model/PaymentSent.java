@@ -3,40 +3,64 @@ package br.com.rinha.pagamentos.model;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class PaymentSent {
 
-	private UUID correlationId;
-	private BigDecimal amount;
-	private Instant requestedAt;
+	private long correlationIdMsb;
+	private long correlationIdLsb;
+	private long amountCents;
+	private long requestedAtMillis;
 
 	public PaymentSent(QueuedPayment payment) {
-		this.amount = payment.getAmount();
-		this.correlationId = payment.getCorrelationId();
-		this.requestedAt = Instant.now();
+		this.correlationIdMsb = payment.getCorrelationIdMsb();
+		this.correlationIdLsb = payment.getCorrelationIdLsb();
+		this.amountCents = payment.getAmountCents();
+		this.requestedAtMillis = System.currentTimeMillis();
 	}
 
 	public UUID getCorrelationId() {
-		return correlationId;
+		return new UUID(correlationIdMsb, correlationIdLsb);
 	}
 
 	public void setCorrelationId(UUID correlationId) {
-		this.correlationId = correlationId;
+		this.correlationIdMsb = correlationId.getMostSignificantBits();
+		this.correlationIdLsb = correlationId.getLeastSignificantBits();
 	}
 
 	public BigDecimal getAmount() {
-		return amount;
+		return BigDecimal.valueOf(amountCents, 2);
 	}
 
 	public void setAmount(BigDecimal amount) {
-		this.amount = amount;
+		this.amountCents = amount.movePointRight(2).longValue();
 	}
 
 	public Instant getRequestedAt() {
-		return requestedAt;
+		return Instant.ofEpochMilli(requestedAtMillis);
 	}
 
 	public void setRequestedAt(Instant requestedAt) {
-		this.requestedAt = requestedAt;
+		this.requestedAtMillis = requestedAt.toEpochMilli();
+	}
+
+	@JsonIgnore
+	public long getCorrelationIdMsb() {
+		return correlationIdMsb;
+	}
+
+	@JsonIgnore
+	public long getCorrelationIdLsb() {
+		return correlationIdLsb;
+	}
+
+	@JsonIgnore
+	public long getAmountCents() {
+		return amountCents;
+	}
+
+	@JsonIgnore
+	public long getRequestedAtMillis() {
+		return requestedAtMillis;
 	}
 }
@@ -2,33 +2,86 @@ package br.com.rinha.pagamentos.model;
 
 import java.math.BigDecimal;
 import java.util.UUID;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class QueuedPayment {
 
-	private UUID correlationId;
-	private BigDecimal amount;
+	private long correlationIdMsb;
+	private long correlationIdLsb;
+	private long amountCents;
+	private long receivedAtMillis;
+	private int attempts;
 
 	public QueuedPayment() {
 	}
 
 	public QueuedPayment(BigDecimal amount, UUID correlationId) {
-		this.amount = amount;
-		this.correlationId = correlationId;
+		this(correlationId.getMostSignificantBits(), correlationId.getLeastSignificantBits(), amount.movePointRight(2).longValue());
+	}
+
+	public QueuedPayment(long correlationIdMsb, long correlationIdLsb, long amountCents) {
+		this.correlationIdMsb = correlationIdMsb;
+		this.correlationIdLsb = correlationIdLsb;
+		this.amountCents = amountCents;
+	}
+
+	public QueuedPayment(long correlationIdMsb, long correlationIdLsb, long amountCents, long receivedAtMillis, int attempts) {
+		this.correlationIdMsb = correlationIdMsb;
+		this.correlationIdLsb = correlationIdLsb;
+		this.amountCents = amountCents;
+		this.receivedAtMillis = receivedAtMillis;
+		this.attempts = attempts;
 	}
 
 	public UUID getCorrelationId() {
-		return correlationId;
+		return new UUID(correlationIdMsb, correlationIdLsb);
 	}
 
 	public void setCorrelationId(UUID correlationId) {
-		this.correlationId = correlationId;
+		this.correlationIdMsb = correlationId.getMostSignificantBits();
+		this.correlationIdLsb = correlationId.getLeastSignificantBits();
 	}
 
 	public BigDecimal getAmount() {
-		return amount;
+		return BigDecimal.valueOf(amountCents, 2);
 	}
 
 	public void setAmount(BigDecimal amount) {
-		this.amount = amount;
+		this.amountCents = amount.movePointRight(2).longValue();
+	}
+
+	@JsonIgnore
+	public long getCorrelationIdMsb() {
+		return correlationIdMsb;
+	}
+
+	@JsonIgnore
+	public long getCorrelationIdLsb() {
+		return correlationIdLsb;
+	}
+
+	@JsonIgnore
+	public long getAmountCents() {
+		return amountCents;
+	}
+
+	@JsonIgnore
+	public long getReceivedAtMillis() {
+		return receivedAtMillis;
+	}
+
+	public void markReceived(long receivedAtMillis) {
+		if (this.receivedAtMillis == 0) {
+			this.receivedAtMillis = receivedAtMillis;
+		}
+	}
+
+	@JsonIgnore
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public QueuedPayment nextAttempt() {
+		return new QueuedPayment(correlationIdMsb, correlationIdLsb, amountCents, receivedAtMillis, attempts + 1);
 	}
 }
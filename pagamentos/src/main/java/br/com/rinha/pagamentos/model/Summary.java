@@ -1,26 +1,37 @@
 package br.com.rinha.pagamentos.model;
 
 import java.math.BigDecimal;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class Summary {
 
 	private long totalRequests;
-	private BigDecimal totalAmount;
+	private long totalAmountCents;
 
 	public Summary() {
 	}
 
 	public Summary(long totalRequests, BigDecimal totalAmount) {
-		this.totalAmount = totalAmount;
+		this.totalAmountCents = totalAmount.movePointRight(2).longValue();
+		this.totalRequests = totalRequests;
+	}
+
+	public Summary(long totalRequests, long totalAmountCents) {
+		this.totalAmountCents = totalAmountCents;
 		this.totalRequests = totalRequests;
 	}
 
 	public BigDecimal getTotalAmount() {
-		return totalAmount;
+		return BigDecimal.valueOf(totalAmountCents, 2);
 	}
 
 	public void setTotalAmount(BigDecimal totalAmount) {
-		this.totalAmount = totalAmount;
+		this.totalAmountCents = totalAmount.movePointRight(2).longValue();
+	}
+
+	@JsonIgnore
+	public long getTotalAmountCents() {
+		return totalAmountCents;
 	}
 
 	public long getTotalRequests() {
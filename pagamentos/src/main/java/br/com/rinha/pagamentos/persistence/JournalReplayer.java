@@ -0,0 +1,103 @@
+package br.com.rinha.pagamentos.persistence;
+
+import br.com.rinha.pagamentos.ingest.AdmissionController;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class JournalReplayer {
+
+	private final PaymentJournal journal;
+	private final PersistenceBuffer persistenceBuffer;
+	private final AdmissionController admissionController;
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+	private final int batchSize;
+
+	private final AtomicBoolean replaying = new AtomicBoolean();
+	private final LongAdder failures = new LongAdder();
+
+	public JournalReplayer(
+			PaymentJournal journal,
+			PersistenceBuffer persistenceBuffer,
+			AdmissionController admissionController,
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
+			@Value("${journal.replay-batch-size}") int batchSize) {
+		this.journal = journal;
+		this.persistenceBuffer = persistenceBuffer;
+		this.admissionController = admissionController;
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+		this.batchSize = batchSize;
+	}
+
+	@Scheduled(fixedDelayString = "${journal.replay-interval-ms}")
+	public void replay() {
+		if (journal.getPendingCount() == 0 || !replaying.compareAndSet(false, true)) {
+			return;
+		}
+
+		List<PaymentJournal.Entry> entries = journal.pending(batchSize, admissionController.isAdmitting());
+		if (entries.isEmpty()) {
+			replaying.set(false);
+			return;
+		}
+		List<PaymentJournal.Entry> enqueues = new ArrayList<>();
+		List<PaymentJournal.Entry> persists = new ArrayList<>();
+		for (PaymentJournal.Entry entry : entries) {
+			(entry.kind() == PaymentJournal.KIND_ENQUEUE ? enqueues : persists).add(entry);
+		}
+
+		final boolean fullBatch = entries.size() == batchSize;
+		Mono.when(replayEnqueues(enqueues), replayPersists(persists))
+				.subscribe(
+						null,
+						e -> {
+							replaying.set(false);
+							failures.increment();
+						},
+						() -> {
+							replaying.set(false);
+							if (fullBatch) {
+								replay();
+							}
+						});
+	}
+
+	private Mono<Void> replayEnqueues(List<PaymentJournal.Entry> entries) {
+		if (entries.isEmpty()) {
+			return Mono.empty();
+		}
+		List<QueuedPayment> payments = new ArrayList<>(entries.size());
+		for (PaymentJournal.Entry entry : entries) {
+			payments.add(new QueuedPayment(entry.correlationIdMsb(), entry.correlationIdLsb(), entry.amountCents(),
+					entry.timestampMillis(), entry.attempts()));
+		}
+		return reactiveQueuedRedisTemplate.opsForList()
+				.leftPushAll(RetryScheduler.FRESH_QUEUE_KEY, payments)
+				.doOnNext(size -> journal.markReplayed(entries))
+				.then();
+	}
+
+	private Mono<Void> replayPersists(List<PaymentJournal.Entry> entries) {
+		if (entries.isEmpty()) {
+			return Mono.empty();
+		}
+		return persistenceBuffer.replay(entries)
+				.doOnNext(written -> journal.markReplayed(entries))
+				.then();
+	}
+
+	public long getFailureCount() {
+		return failures.sum();
+	}
+}
@@ -0,0 +1,253 @@
+package br.com.rinha.pagamentos.persistence;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PaymentJournal {
+
+	private static final Logger log = LoggerFactory.getLogger(PaymentJournal.class);
+
+	public static final byte KIND_ENQUEUE = 1;
+	public static final byte KIND_PERSIST = 2;
+
+	static final int RECORD_SIZE = 48;
+
+	private static final byte STATE_PENDING = 1;
+	private static final byte STATE_REPLAYED = 2;
+
+	private static final int KIND_OFFSET = 0;
+	private static final int STATE_OFFSET = 1;
+	private static final int PROCESSOR_OFFSET = 2;
+	private static final int ATTEMPTS_OFFSET = 3;
+	private static final int CHECKSUM_OFFSET = 4;
+	private static final int SEQUENCE_OFFSET = 8;
+	private static final int MSB_OFFSET = 16;
+	private static final int LSB_OFFSET = 24;
+	private static final int CENTS_OFFSET = 32;
+	private static final int TIMESTAMP_OFFSET = 40;
+
+	private final int capacity;
+	private final MappedByteBuffer buffer;
+
+	private long appendSequence;
+	private long replaySequence;
+	private int pendingRecords;
+	private int pendingEnqueues;
+	private volatile boolean dirty;
+
+	private final LongAdder appended = new LongAdder();
+	private final LongAdder replayed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder syncs = new LongAdder();
+
+	public PaymentJournal(
+			@Value("${journal.enabled}") boolean enabled,
+			@Value("${journal.path}") String path,
+			@Value("${journal.capacity}") int capacity) {
+		this.capacity = capacity;
+		this.buffer = enabled ? map(Path.of(path), (long) capacity * RECORD_SIZE) : null;
+		if (buffer != null) {
+			recover();
+		}
+	}
+
+	private static MappedByteBuffer map(Path path, long size) {
+		try {
+			Path parent = path.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			try (FileChannel channel = FileChannel.open(path,
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+		} catch (IOException e) {
+			log.warn("Unable to map payment journal at {}; running without a journal", path, e);
+			return null;
+		}
+	}
+
+	private void recover() {
+		long maxSequence = -1;
+		long minPending = Long.MAX_VALUE;
+		for (int slot = 0; slot < capacity; slot++) {
+			int base = slot * RECORD_SIZE;
+			if (buffer.get(base + KIND_OFFSET) == 0) {
+				continue;
+			}
+			long sequence = buffer.getLong(base + SEQUENCE_OFFSET);
+			maxSequence = Math.max(maxSequence, sequence);
+			if (buffer.get(base + STATE_OFFSET) == STATE_PENDING) {
+				if (validChecksum(base)) {
+					pendingRecords++;
+					if (buffer.get(base + KIND_OFFSET) == KIND_ENQUEUE) {
+						pendingEnqueues++;
+					}
+					minPending = Math.min(minPending, sequence);
+				} else {
+					buffer.put(base + STATE_OFFSET, STATE_REPLAYED);
+				}
+			}
+		}
+		appendSequence = maxSequence + 1;
+		replaySequence = pendingRecords > 0 ? minPending : appendSequence;
+	}
+
+	public synchronized boolean append(byte kind, byte processor, int attempts,
+			long correlationIdMsb, long correlationIdLsb, long amountCents, long timestampMillis) {
+		if (buffer == null) {
+			return false;
+		}
+		int base = slotOf(appendSequence) * RECORD_SIZE;
+		if (buffer.get(base + STATE_OFFSET) == STATE_PENDING) {
+			rejected.increment();
+			return false;
+		}
+		buffer.put(base + KIND_OFFSET, kind);
+		buffer.put(base + PROCESSOR_OFFSET, processor);
+		buffer.put(base + ATTEMPTS_OFFSET, (byte) Math.min(attempts, 0xFF));
+		buffer.putLong(base + SEQUENCE_OFFSET, appendSequence);
+		buffer.putLong(base + MSB_OFFSET, correlationIdMsb);
+		buffer.putLong(base + LSB_OFFSET, correlationIdLsb);
+		buffer.putLong(base + CENTS_OFFSET, amountCents);
+		buffer.putLong(base + TIMESTAMP_OFFSET, timestampMillis);
+		buffer.putInt(base + CHECKSUM_OFFSET, checksum(base));
+		buffer.put(base + STATE_OFFSET, STATE_PENDING);
+		appendSequence++;
+		pendingRecords++;
+		if (kind == KIND_ENQUEUE) {
+			pendingEnqueues++;
+		}
+		dirty = true;
+		appended.increment();
+		return true;
+	}
+
+	public synchronized List<Entry> pending(int max, boolean includeEnqueues) {
+		List<Entry> entries = new ArrayList<>(Math.min(max, pendingRecords));
+		if (buffer == null) {
+			return entries;
+		}
+		boolean leading = true;
+		for (long sequence = replaySequence; sequence < appendSequence && entries.size() < max; sequence++) {
+			int base = slotOf(sequence) * RECORD_SIZE;
+			boolean pending = buffer.get(base + STATE_OFFSET) == STATE_PENDING
+					&& buffer.getLong(base + SEQUENCE_OFFSET) == sequence;
+			if (!pending) {
+				if (leading) {
+					replaySequence = sequence + 1;
+				}
+				continue;
+			}
+			leading = false;
+			if (!includeEnqueues && buffer.get(base + KIND_OFFSET) == KIND_ENQUEUE) {
+				continue;
+			}
+			entries.add(new Entry(sequence,
+					buffer.get(base + KIND_OFFSET),
+					buffer.get(base + PROCESSOR_OFFSET),
+					buffer.get(base + ATTEMPTS_OFFSET) & 0xFF,
+					buffer.getLong(base + MSB_OFFSET),
+					buffer.getLong(base + LSB_OFFSET),
+					buffer.getLong(base + CENTS_OFFSET),
+					buffer.getLong(base + TIMESTAMP_OFFSET)));
+		}
+		return entries;
+	}
+
+	public synchronized void markReplayed(List<Entry> entries) {
+		for (Entry entry : entries) {
+			int base = slotOf(entry.sequence()) * RECORD_SIZE;
+			if (buffer.getLong(base + SEQUENCE_OFFSET) == entry.sequence()
+					&& buffer.get(base + STATE_OFFSET) == STATE_PENDING) {
+				buffer.put(base + STATE_OFFSET, STATE_REPLAYED);
+				pendingRecords--;
+				if (entry.kind() == KIND_ENQUEUE) {
+					pendingEnqueues--;
+				}
+				replayed.increment();
+			}
+		}
+		dirty = true;
+	}
+
+	@Scheduled(fixedDelayString = "${journal.fsync-interval-ms}")
+	public void sync() {
+		if (buffer == null || !dirty) {
+			return;
+		}
+		dirty = false;
+		buffer.force();
+		syncs.increment();
+	}
+
+	@PreDestroy
+	public void close() {
+		sync();
+	}
+
+	private int slotOf(long sequence) {
+		return (int) (sequence % capacity);
+	}
+
+	private boolean validChecksum(int base) {
+		return buffer.getInt(base + CHECKSUM_OFFSET) == checksum(base);
+	}
+
+	private int checksum(int base) {
+		long hash = buffer.getLong(base + SEQUENCE_OFFSET);
+		hash = hash * 31 + buffer.getLong(base + MSB_OFFSET);
+		hash = hash * 31 + buffer.getLong(base + LSB_OFFSET);
+		hash = hash * 31 + buffer.getLong(base + CENTS_OFFSET);
+		hash = hash * 31 + buffer.getLong(base + TIMESTAMP_OFFSET);
+		hash = hash * 31 + (buffer.getInt(base + KIND_OFFSET) & 0xFF00_FFFF);
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	public boolean isEnabled() {
+		return buffer != null;
+	}
+
+	public synchronized int getPendingCount() {
+		return pendingRecords;
+	}
+
+	public synchronized int getPendingEnqueueCount() {
+		return pendingEnqueues;
+	}
+
+	public long getAppendedCount() {
+		return appended.sum();
+	}
+
+	public long getReplayedCount() {
+		return replayed.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	public long getSyncCount() {
+		return syncs.sum();
+	}
+
+	public record Entry(long sequence, byte kind, byte processor, int attempts,
+			long correlationIdMsb, long correlationIdLsb, long amountCents, long timestampMillis) {
+	}
+}
@@ -0,0 +1,342 @@
+package br.com.rinha.pagamentos.persistence;
+
+import br.com.rinha.pagamentos.idempotency.CompletedPaymentIndex;
+import br.com.rinha.pagamentos.ingest.MpmcRing;
+import br.com.rinha.pagamentos.summary.LocalSummaryAggregator;
+import br.com.rinha.pagamentos.summary.SummaryCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PersistenceBuffer {
+
+	private static final String PAYMENTS_AMOUNT_TS_KEY = "payments:amount:ts";
+	private static final String PAYMENTS_COUNT_TS_KEY = "payments:count:ts";
+	private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+	private static final byte PROCESSOR_DEFAULT = 0;
+	private static final byte PROCESSOR_FALLBACK = 1;
+
+	@SuppressWarnings("unchecked")
+	private static final Class<List<Long>> WRITTEN_FLAGS = (Class<List<Long>>) (Class<?>) List.class;
+
+	private static final RedisScript<List<Long>> PERSIST_BATCH_SCRIPT =
+			new DefaultRedisScript<>(
+					"local args = {} " +
+							"local flags = {} " +
+							"for i = 1, #KEYS, 3 do " +
+							"  local j = (i - 1) / 3 " +
+							"  if redis.call('SET', KEYS[i], '1', 'NX', 'PX', ARGV[1]) then " +
+							"    local n = #args " +
+							"    args[n + 1] = KEYS[i + 1] " +
+							"    args[n + 2] = ARGV[2 * j + 2] " +
+							"    args[n + 3] = ARGV[2 * j + 3] " +
+							"    args[n + 4] = KEYS[i + 2] " +
+							"    args[n + 5] = ARGV[2 * j + 2] " +
+							"    args[n + 6] = '1' " +
+							"    flags[j + 1] = 1 " +
+							"  else " +
+							"    flags[j + 1] = 0 " +
+							"  end " +
+							"end " +
+							"if #args > 0 then redis.call('TS.MADD', unpack(args)) end " +
+							"return flags",
+					WRITTEN_FLAGS
+			);
+
+	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
+	private final PersistenceWatermark watermark;
+	private final PaymentJournal journal;
+	private final LocalSummaryAggregator localSummaryAggregator;
+	private final SummaryCache summaryCache;
+	private final MpmcRing<PendingSample> pending;
+	private final int flushThreshold;
+	private final int maxBatchPayments;
+	private final String completedTtlMillis;
+
+	private final AtomicBoolean flushing = new AtomicBoolean();
+	private final AtomicLong highestEnqueuedPosition = new AtomicLong(-1);
+	private final AtomicLong persistedPosition = new AtomicLong();
+	private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+	private final ConcurrentHashMap<PendingSample, Boolean> journaled = new ConcurrentHashMap<>();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder flushFailures = new LongAdder();
+	private final LongAdder directWrites = new LongAdder();
+	private final LongAdder duplicatesSuppressed = new LongAdder();
+
+	private volatile List<PendingSample> failedBatch;
+
+	public PersistenceBuffer(
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
+			PersistenceWatermark watermark,
+			PaymentJournal journal,
+			LocalSummaryAggregator localSummaryAggregator,
+			SummaryCache summaryCache,
+			@Value("${persist.buffer.capacity}") int capacity,
+			@Value("${persist.batch.threshold}") int flushThreshold,
+			@Value("${persist.batch.max-payments}") int maxBatchPayments,
+			@Value("${dedup.redis.ttl-ms}") long completedTtlMillis) {
+		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
+		this.watermark = watermark;
+		this.journal = journal;
+		this.localSummaryAggregator = localSummaryAggregator;
+		this.summaryCache = summaryCache;
+		this.pending = new MpmcRing<>(capacity);
+		this.flushThreshold = flushThreshold;
+		this.maxBatchPayments = maxBatchPayments;
+		this.completedTtlMillis = String.valueOf(completedTtlMillis);
+	}
+
+	public Mono<Void> persist(String processorKey, long correlationIdMsb, long correlationIdLsb,
+			long requestedAtMillis, long amountCents) {
+		PendingSample sample = new PendingSample(processorKey, correlationIdMsb, correlationIdLsb, requestedAtMillis, amountCents);
+		watermark.begin(requestedAtMillis);
+		long position = pending.offerAndGetPosition(sample);
+		if (position < 0) {
+			directWrites.increment();
+			return write(List.of(sample))
+					.doOnNext(written -> watermark.end(requestedAtMillis))
+					.then()
+					.onErrorResume(e -> {
+						if (journal(sample, false)) {
+							return Mono.empty();
+						}
+						watermark.end(requestedAtMillis);
+						return Mono.error(e);
+					});
+		}
+		highestEnqueuedPosition.accumulateAndGet(position, Math::max);
+		if (pending.size() >= flushThreshold) {
+			flush();
+		}
+		return Mono.empty();
+	}
+
+	public Mono<Void> awaitPersisted() {
+		long target = highestEnqueuedPosition.get() + 1;
+		if (persistedPosition.get() >= target) {
+			return Mono.empty();
+		}
+		return Mono.create(sink -> {
+			waiters.add(new Waiter(target, sink));
+			releaseWaiters();
+			flush();
+		});
+	}
+
+	@Scheduled(fixedDelayString = "${persist.batch.window-ms}")
+	public void scheduledFlush() {
+		flush();
+	}
+
+	private void flush() {
+		if (!flushing.compareAndSet(false, true)) {
+			return;
+		}
+
+		List<PendingSample> batch = failedBatch;
+		failedBatch = null;
+		if (batch == null) {
+			batch = drainBatch();
+		}
+		if (batch.isEmpty()) {
+			flushing.set(false);
+			return;
+		}
+
+		final List<PendingSample> inFlight = batch;
+		write(inFlight)
+				.doFinally(signal -> {
+					flushing.set(false);
+					if (pending.size() >= flushThreshold || (!pending.isEmpty() && !waiters.isEmpty())) {
+						flush();
+					}
+				})
+				.subscribe(
+						written -> {
+							flushes.increment();
+							persistedPosition.addAndGet(inFlight.size());
+							for (PendingSample sample : inFlight) {
+								watermark.end(sample.requestedAtMillis());
+							}
+							releaseWaiters();
+						},
+						e -> {
+							flushFailures.increment();
+							List<PendingSample> unjournaled = new ArrayList<>();
+							for (PendingSample sample : inFlight) {
+								if (!journal(sample, true)) {
+									unjournaled.add(sample);
+								}
+							}
+							failedBatch = unjournaled.isEmpty() ? null : unjournaled;
+						});
+	}
+
+	private List<PendingSample> drainBatch() {
+		List<PendingSample> batch = new ArrayList<>(Math.min(maxBatchPayments, pending.size()));
+		PendingSample sample;
+		while (batch.size() < maxBatchPayments && (sample = pending.poll()) != null) {
+			batch.add(sample);
+		}
+		return batch;
+	}
+
+	private Mono<Long> write(List<PendingSample> batch) {
+		List<String> keys = new ArrayList<>(batch.size() * 3);
+		List<String> args = new ArrayList<>(batch.size() * 2 + 1);
+		args.add(completedTtlMillis);
+		for (PendingSample sample : batch) {
+			keys.add(CompletedPaymentIndex.completedKey(sample.correlationIdMsb(), sample.correlationIdLsb()));
+			keys.add(PAYMENTS_AMOUNT_TS_KEY + ":" + sample.processorKey());
+			keys.add(PAYMENTS_COUNT_TS_KEY + ":" + sample.processorKey());
+			args.add(String.valueOf(sample.requestedAtMillis()));
+			args.add(String.valueOf(sample.amountCents()));
+		}
+		return reactivePersistedRedisTemplate.execute(PERSIST_BATCH_SCRIPT, keys, args)
+				.next()
+				.map(flags -> {
+					long written = 0;
+					for (int i = 0; i < batch.size(); i++) {
+						if (flags.get(i) == 1L) {
+							written++;
+							onWritten(batch.get(i));
+						}
+					}
+					duplicatesSuppressed.add(batch.size() - written);
+					return written;
+				});
+	}
+
+	private void onWritten(PendingSample sample) {
+		localSummaryAggregator.record(LocalSummaryAggregator.processorIndex(sample.processorKey()),
+				sample.requestedAtMillis(), sample.amountCents());
+		summaryCache.onPersisted(sample.requestedAtMillis());
+	}
+
+	public Mono<Long> replay(List<PaymentJournal.Entry> entries) {
+		List<PendingSample> batch = new ArrayList<>(entries.size());
+		for (PaymentJournal.Entry entry : entries) {
+			batch.add(new PendingSample(entry.processor() == PROCESSOR_FALLBACK ? "fallback" : "default",
+					entry.correlationIdMsb(), entry.correlationIdLsb(), entry.timestampMillis(), entry.amountCents()));
+		}
+		return write(batch).doOnNext(written -> {
+			int buffered = 0;
+			for (PendingSample sample : batch) {
+				Boolean fromBuffer = journaled.remove(sample);
+				if (fromBuffer != null) {
+					watermark.end(sample.requestedAtMillis());
+					if (fromBuffer) {
+						buffered++;
+					}
+				}
+			}
+			if (buffered > 0) {
+				persistedPosition.addAndGet(buffered);
+				releaseWaiters();
+			}
+		});
+	}
+
+	private boolean journal(PendingSample sample, boolean fromBuffer) {
+		journaled.put(sample, fromBuffer);
+		if (journalSample(sample)) {
+			return true;
+		}
+		journaled.remove(sample);
+		return false;
+	}
+
+	private boolean journalSample(PendingSample sample) {
+		return journal.append(PaymentJournal.KIND_PERSIST,
+				"fallback".equals(sample.processorKey()) ? PROCESSOR_FALLBACK : PROCESSOR_DEFAULT, 0,
+				sample.correlationIdMsb(), sample.correlationIdLsb(), sample.amountCents(), sample.requestedAtMillis());
+	}
+
+	private void releaseWaiters() {
+		long persisted = persistedPosition.get();
+		Iterator<Waiter> iterator = waiters.iterator();
+		while (iterator.hasNext()) {
+			Waiter waiter = iterator.next();
+			if (waiter.target() <= persisted) {
+				iterator.remove();
+				waiter.sink().success();
+			}
+		}
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		List<PendingSample> remaining = new ArrayList<>();
+		List<PendingSample> failed = failedBatch;
+		if (failed != null) {
+			remaining.addAll(failed);
+		}
+		PendingSample sample;
+		while ((sample = pending.poll()) != null) {
+			remaining.add(sample);
+		}
+		for (int from = 0; from < remaining.size(); from += maxBatchPayments) {
+			List<PendingSample> batch = remaining.subList(from, Math.min(remaining.size(), from + maxBatchPayments));
+			try {
+				write(batch).block(SHUTDOWN_FLUSH_TIMEOUT);
+			} catch (RuntimeException e) {
+				flushFailures.increment();
+				batch.forEach(this::journalSample);
+			}
+		}
+		journal.sync();
+	}
+
+	public long getDuplicatesSuppressedCount() {
+		return duplicatesSuppressed.sum();
+	}
+
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	public long getFlushCount() {
+		return flushes.sum();
+	}
+
+	public long getFlushFailureCount() {
+		return flushFailures.sum();
+	}
+
+	public long getDirectWriteCount() {
+		return directWrites.sum();
+	}
+
+	public long getPersistedCount() {
+		return persistedPosition.get();
+	}
+
+	public int getJournaledCount() {
+		return journaled.size();
+	}
+
+	private record PendingSample(String processorKey, long correlationIdMsb, long correlationIdLsb,
+			long requestedAtMillis, long amountCents) {
+	}
+
+	private record Waiter(long target, MonoSink<Void> sink) {
+	}
+}
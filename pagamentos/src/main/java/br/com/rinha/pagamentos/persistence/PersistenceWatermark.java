@@ -0,0 +1,52 @@
+package br.com.rinha.pagamentos.persistence;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class PersistenceWatermark {
+
+	private static final int SLOTS = 1 << 16;
+	private static final int MASK = SLOTS - 1;
+	private static final long SETTLE_MARGIN_MILLIS = 2;
+
+	private final AtomicLongArray pendingByMillis = new AtomicLongArray(SLOTS);
+	private final AtomicLong pending = new AtomicLong();
+	private final AtomicLong scanFrom = new AtomicLong(System.currentTimeMillis());
+
+	public void begin(long requestedAtMillis) {
+		pendingByMillis.incrementAndGet((int) (requestedAtMillis & MASK));
+		pending.incrementAndGet();
+		if (requestedAtMillis < scanFrom.get()) {
+			scanFrom.accumulateAndGet(requestedAtMillis, Math::min);
+		}
+	}
+
+	public void end(long requestedAtMillis) {
+		pendingByMillis.decrementAndGet((int) (requestedAtMillis & MASK));
+		pending.decrementAndGet();
+	}
+
+	public long current() {
+		final long horizon = System.currentTimeMillis() - SETTLE_MARGIN_MILLIS;
+		final long start = scanFrom.get();
+		long millis = Math.max(start, horizon - SLOTS + 1);
+
+		if (pending.get() > 0) {
+			while (millis <= horizon && pendingByMillis.get((int) (millis & MASK)) <= 0) {
+				millis++;
+			}
+		} else {
+			millis = Math.max(millis, horizon + 1);
+		}
+
+		scanFrom.compareAndSet(start, millis);
+		return millis;
+	}
+
+	public long getPendingCount() {
+		return pending.get();
+	}
+}
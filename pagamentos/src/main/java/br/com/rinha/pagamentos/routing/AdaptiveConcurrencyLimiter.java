@@ -0,0 +1,72 @@
+package br.com.rinha.pagamentos.routing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class AdaptiveConcurrencyLimiter {
+
+	private final double minLimit;
+	private final double maxLimit;
+	private final double backoffRatio;
+	private final long slowCallNanos;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong limitBits;
+	private final LongAdder rejected = new LongAdder();
+
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long slowCallNanos) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.slowCallNanos = slowCallNanos;
+		this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+	}
+
+	public boolean hasCapacity() {
+		return inFlight.get() < currentLimit();
+	}
+
+	public boolean tryAcquire() {
+		for (;;) {
+			int current = inFlight.get();
+			if (current >= currentLimit()) {
+				rejected.increment();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	public void release(boolean success, long latencyNanos) {
+		inFlight.decrementAndGet();
+		for (;;) {
+			long bits = limitBits.get();
+			double limit = Double.longBitsToDouble(bits);
+			double next = success && latencyNanos < slowCallNanos
+					? Math.min(maxLimit, limit + 1d / limit)
+					: Math.max(minLimit, limit * backoffRatio);
+			if (next == limit || limitBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+				return;
+			}
+		}
+	}
+
+	public int currentLimit() {
+		return (int) Double.longBitsToDouble(limitBits.get());
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+}
@@ -0,0 +1,147 @@
+package br.com.rinha.pagamentos.routing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CircuitBreaker {
+
+	public static final int CLOSED = 0;
+	public static final int OPEN = 1;
+	public static final int HALF_OPEN = 2;
+
+	public interface TransitionListener {
+		void onTransition(CircuitBreaker breaker, int state, long openUntilMillis);
+	}
+
+	private final String processorKey;
+	private final int failureThreshold;
+	private final long openMillis;
+	private final int halfOpenProbes;
+	private final long halfOpenMillis;
+	private final long slowCallNanos;
+	private final TransitionListener listener;
+
+	private final AtomicInteger state = new AtomicInteger(CLOSED);
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private final AtomicInteger probePermits = new AtomicInteger();
+
+	private volatile long openUntilMillis;
+	private volatile long halfOpenUntilMillis;
+
+	public CircuitBreaker(String processorKey, int failureThreshold, long openMillis, int halfOpenProbes,
+			long halfOpenMillis, long slowCallNanos, TransitionListener listener) {
+		this.processorKey = processorKey;
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+		this.halfOpenProbes = halfOpenProbes;
+		this.halfOpenMillis = halfOpenMillis;
+		this.slowCallNanos = slowCallNanos;
+		this.listener = listener;
+	}
+
+	public boolean isCallPermitted(long nowMillis) {
+		int current = state.get();
+		if (current == CLOSED) {
+			return true;
+		}
+		if (current == OPEN) {
+			return nowMillis >= openUntilMillis;
+		}
+		return nowMillis < halfOpenUntilMillis && probePermits.get() > 0;
+	}
+
+	public boolean tryAcquire(long nowMillis) {
+		for (;;) {
+			int current = state.get();
+			if (current == CLOSED) {
+				return true;
+			}
+			if (current == OPEN) {
+				if (nowMillis < openUntilMillis) {
+					return false;
+				}
+				probePermits.set(halfOpenProbes);
+				halfOpenUntilMillis = nowMillis + halfOpenMillis;
+				if (!state.compareAndSet(OPEN, HALF_OPEN)) {
+					continue;
+				}
+			}
+			if (nowMillis >= halfOpenUntilMillis) {
+				reopenExpiredHalfOpen(nowMillis);
+				continue;
+			}
+			return takeProbe();
+		}
+	}
+
+	public void onCancel() {
+		if (state.get() == HALF_OPEN) {
+			probePermits.accumulateAndGet(1, (permits, returned) -> Math.min(halfOpenProbes, permits + returned));
+		}
+	}
+
+	private boolean takeProbe() {
+		for (;;) {
+			int permits = probePermits.get();
+			if (permits <= 0) {
+				return false;
+			}
+			if (probePermits.compareAndSet(permits, permits - 1)) {
+				return true;
+			}
+		}
+	}
+
+	private void reopenExpiredHalfOpen(long nowMillis) {
+		long until = nowMillis + openMillis;
+		openUntilMillis = until;
+		if (state.compareAndSet(HALF_OPEN, OPEN)) {
+			consecutiveFailures.set(0);
+			listener.onTransition(this, OPEN, until);
+		}
+	}
+
+	public void onResult(boolean success, long latencyNanos) {
+		if (success && latencyNanos < slowCallNanos) {
+			consecutiveFailures.set(0);
+			if (state.get() == HALF_OPEN && state.compareAndSet(HALF_OPEN, CLOSED)) {
+				listener.onTransition(this, CLOSED, 0);
+			}
+			return;
+		}
+		if (state.get() == HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+			trip(System.currentTimeMillis() + openMillis);
+		}
+	}
+
+	private void trip(long until) {
+		int current = state.get();
+		if (current == OPEN && openUntilMillis >= until) {
+			return;
+		}
+		openUntilMillis = until;
+		consecutiveFailures.set(0);
+		state.set(OPEN);
+		listener.onTransition(this, OPEN, until);
+	}
+
+	public void applyRemote(int remoteState, long remoteOpenUntilMillis) {
+		if (remoteState == OPEN) {
+			if (state.get() != OPEN || openUntilMillis < remoteOpenUntilMillis) {
+				openUntilMillis = remoteOpenUntilMillis;
+				consecutiveFailures.set(0);
+				state.set(OPEN);
+			}
+		} else if (remoteState == CLOSED) {
+			consecutiveFailures.set(0);
+			state.set(CLOSED);
+		}
+	}
+
+	public String getProcessorKey() {
+		return processorKey;
+	}
+
+	public int getState() {
+		return state.get();
+	}
+}
@@ -0,0 +1,83 @@
+package br.com.rinha.pagamentos.routing;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class CircuitBreakerRegistry implements MessageListener {
+
+	private static final String HEALTH_NOTIFICATION_CHANNEL = "health:notifications";
+	private static final ChannelTopic NOTIFICATION_TOPIC = new ChannelTopic(HEALTH_NOTIFICATION_CHANNEL);
+	private static final String MESSAGE_PREFIX = "breaker|";
+
+	private final String nodeId = UUID.randomUUID().toString();
+	private final CircuitBreaker defaultBreaker;
+	private final CircuitBreaker fallbackBreaker;
+
+	public CircuitBreakerRegistry(
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactiveRedisTemplate,
+			@Value("${routing.breaker.failure-threshold}") int failureThreshold,
+			@Value("${routing.breaker.open-ms}") long openMillis,
+			@Value("${routing.breaker.half-open-probes}") int halfOpenProbes,
+			@Value("${routing.breaker.half-open-ms}") long halfOpenMillis,
+			@Value("${routing.breaker.slow-call-ms}") long slowCallMillis) {
+		long slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+		TransitionPublisher publisher = new TransitionPublisher(reactiveRedisTemplate, nodeId);
+		this.defaultBreaker = new CircuitBreaker("default", failureThreshold, openMillis, halfOpenProbes, halfOpenMillis, slowCallNanos, publisher);
+		this.fallbackBreaker = new CircuitBreaker("fallback", failureThreshold, openMillis, halfOpenProbes, halfOpenMillis, slowCallNanos, publisher);
+	}
+
+	public CircuitBreaker forRoute(Route route) {
+		return route == Route.FALLBACK ? fallbackBreaker : defaultBreaker;
+	}
+
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		if (!body.startsWith(MESSAGE_PREFIX)) {
+			return;
+		}
+		String[] parts = body.split("\\|");
+		if (parts.length != 5 || nodeId.equals(parts[1])) {
+			return;
+		}
+		try {
+			CircuitBreaker breaker = "fallback".equals(parts[2]) ? fallbackBreaker : defaultBreaker;
+			breaker.applyRemote(Integer.parseInt(parts[3]), Long.parseLong(parts[4]));
+		} catch (NumberFormatException ignored) {
+		}
+	}
+
+	public ChannelTopic getTopic() {
+		return NOTIFICATION_TOPIC;
+	}
+
+	private static final class TransitionPublisher implements CircuitBreaker.TransitionListener {
+
+		private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+		private final String nodeId;
+
+		private TransitionPublisher(ReactiveStringRedisTemplate reactiveRedisTemplate, String nodeId) {
+			this.reactiveRedisTemplate = reactiveRedisTemplate;
+			this.nodeId = nodeId;
+		}
+
+		@Override
+		public void onTransition(CircuitBreaker breaker, int state, long openUntilMillis) {
+			String message = MESSAGE_PREFIX + nodeId + "|" + breaker.getProcessorKey() + "|" + state + "|" + openUntilMillis;
+			reactiveRedisTemplate.convertAndSend(HEALTH_NOTIFICATION_CHANNEL, message)
+					.onErrorResume(e -> Mono.empty())
+					.subscribe();
+		}
+	}
+}
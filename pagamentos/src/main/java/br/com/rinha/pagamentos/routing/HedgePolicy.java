@@ -0,0 +1,106 @@
+package br.com.rinha.pagamentos.routing;
+
+import br.com.rinha.pagamentos.metrics.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class HedgePolicy {
+
+	private static final long CREDITS_PER_HEDGE = 100;
+
+	private final boolean enabled;
+	private final double percentile;
+	private final long minDelayMicros;
+	private final long maxDelayMicros;
+	private final int minSamples;
+	private final long ratePercent;
+	private final long maxCredits;
+
+	private final AtomicLong credits = new AtomicLong();
+	private volatile LatencyHistogram window = new LatencyHistogram();
+	private volatile Duration delay;
+
+	private final LongAdder hedged = new LongAdder();
+	private final LongAdder capped = new LongAdder();
+
+	public HedgePolicy(
+			@Value("${routing.hedge.enabled}") boolean enabled,
+			@Value("${routing.hedge.percentile}") double percentile,
+			@Value("${routing.hedge.min-delay-ms}") long minDelayMillis,
+			@Value("${routing.hedge.max-delay-ms}") long maxDelayMillis,
+			@Value("${routing.hedge.min-samples}") int minSamples,
+			@Value("${routing.hedge.max-rate-percent}") long ratePercent,
+			@Value("${routing.hedge.burst}") long burst) {
+		this.enabled = enabled;
+		this.percentile = percentile;
+		this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(minDelayMillis);
+		this.maxDelayMicros = TimeUnit.MILLISECONDS.toMicros(maxDelayMillis);
+		this.minSamples = minSamples;
+		this.ratePercent = ratePercent;
+		this.maxCredits = burst * CREDITS_PER_HEDGE;
+		this.delay = Duration.ofMillis(maxDelayMillis);
+	}
+
+	public boolean appliesTo(Route primary) {
+		return enabled && primary == Route.DEFAULT;
+	}
+
+	public void onPrimarySent() {
+		if (credits.get() < maxCredits) {
+			credits.accumulateAndGet(ratePercent, (current, add) -> Math.min(maxCredits, current + add));
+		}
+	}
+
+	public void recordPrimaryLatency(long latencyNanos) {
+		if (enabled) {
+			window.recordNanos(latencyNanos);
+		}
+	}
+
+	public Duration delay() {
+		return delay;
+	}
+
+	public boolean tryAcquire() {
+		for (;;) {
+			long current = credits.get();
+			if (current < CREDITS_PER_HEDGE) {
+				capped.increment();
+				return false;
+			}
+			if (credits.compareAndSet(current, current - CREDITS_PER_HEDGE)) {
+				hedged.increment();
+				return true;
+			}
+		}
+	}
+
+	@Scheduled(fixedRateString = "${routing.hedge.window-ms}")
+	public void refreshDelay() {
+		if (!enabled) {
+			return;
+		}
+		LatencyHistogram current = window;
+		if (current.getCount() < minSamples) {
+			return;
+		}
+		window = new LatencyHistogram();
+		long micros = Math.max(minDelayMicros, Math.min(maxDelayMicros, current.percentileMicros(percentile)));
+		delay = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+	}
+
+	public long getHedgedCount() {
+		return hedged.sum();
+	}
+
+	public long getCappedCount() {
+		return capped.sum();
+	}
+}
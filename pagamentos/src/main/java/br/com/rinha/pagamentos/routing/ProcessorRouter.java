@@ -0,0 +1,186 @@
+package br.com.rinha.pagamentos.routing;
+
+import br.com.rinha.pagamentos.health.HealthSnapshot;
+import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class ProcessorRouter {
+
+	private final ProcessorHealthMonitor healthMonitor;
+	private final CircuitBreakerRegistry circuitBreakers;
+	private final ProcessorStats defaultStats;
+	private final ProcessorStats fallbackStats;
+	private final AdaptiveConcurrencyLimiter defaultLimiter;
+	private final AdaptiveConcurrencyLimiter fallbackLimiter;
+	private final double defaultFeeCostMillis;
+	private final double fallbackFeeCostMillis;
+	private final double errorPenaltyMillis;
+	private final double holdThresholdMillis;
+	private final long errorMemoryNanos;
+
+	private final LongAdder defaultRoutes = new LongAdder();
+	private final LongAdder fallbackRoutes = new LongAdder();
+	private final LongAdder holds = new LongAdder();
+
+	public ProcessorRouter(
+			ProcessorHealthMonitor healthMonitor,
+			CircuitBreakerRegistry circuitBreakers,
+			@Value("${routing.fee.default}") double defaultFee,
+			@Value("${routing.fee.fallback}") double fallbackFee,
+			@Value("${routing.fee-latency-weight-ms}") double feeLatencyWeightMillis,
+			@Value("${routing.error-penalty-ms}") double errorPenaltyMillis,
+			@Value("${routing.hold-threshold-ms}") double holdThresholdMillis,
+			@Value("${routing.error-memory-ms}") long errorMemoryMillis,
+			@Value("${routing.latency-alpha}") double latencyAlpha,
+			@Value("${routing.error-alpha}") double errorAlpha,
+			@Value("${routing.limit.initial}") int initialLimit,
+			@Value("${routing.limit.min}") int minLimit,
+			@Value("${routing.limit.max}") int maxLimit,
+			@Value("${routing.limit.backoff-ratio}") double backoffRatio,
+			@Value("${routing.breaker.slow-call-ms}") long slowCallMillis) {
+		this.healthMonitor = healthMonitor;
+		this.circuitBreakers = circuitBreakers;
+		this.defaultStats = new ProcessorStats(latencyAlpha, errorAlpha);
+		this.fallbackStats = new ProcessorStats(latencyAlpha, errorAlpha);
+		long slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+		this.defaultLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, slowCallNanos);
+		this.fallbackLimiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, slowCallNanos);
+		this.defaultFeeCostMillis = defaultFee * feeLatencyWeightMillis;
+		this.fallbackFeeCostMillis = fallbackFee * feeLatencyWeightMillis;
+		this.errorPenaltyMillis = errorPenaltyMillis;
+		this.holdThresholdMillis = holdThresholdMillis;
+		this.errorMemoryNanos = TimeUnit.MILLISECONDS.toNanos(errorMemoryMillis);
+	}
+
+	public Route route() {
+		Route route = decide(System.nanoTime());
+		switch (route) {
+		case DEFAULT -> defaultRoutes.increment();
+		case FALLBACK -> fallbackRoutes.increment();
+		case HOLD -> holds.increment();
+		}
+		return route;
+	}
+
+	public Route alternativeTo(Route primary) {
+		long now = System.nanoTime();
+		if (primary == Route.DEFAULT) {
+			return fallbackCost(healthMonitor.getSnapshot(), now) <= holdThresholdMillis ? Route.FALLBACK : Route.HOLD;
+		}
+		if (primary == Route.FALLBACK) {
+			return defaultCost(healthMonitor.getSnapshot(), now) <= holdThresholdMillis ? Route.DEFAULT : Route.HOLD;
+		}
+		return Route.HOLD;
+	}
+
+	public boolean canDispatch() {
+		return decide(System.nanoTime()) != Route.HOLD;
+	}
+
+	public boolean tryAcquire(Route route) {
+		AdaptiveConcurrencyLimiter limiter = limiterFor(route);
+		if (!limiter.tryAcquire()) {
+			return false;
+		}
+		if (!circuitBreakers.forRoute(route).tryAcquire(System.currentTimeMillis())) {
+			limiter.release();
+			return false;
+		}
+		return true;
+	}
+
+	public void release(Route route) {
+		limiterFor(route).release();
+		circuitBreakers.forRoute(route).onCancel();
+	}
+
+	public void recordOutcome(Route route, boolean success, long latencyNanos) {
+		ProcessorStats stats = route == Route.FALLBACK ? fallbackStats : defaultStats;
+		if (success) {
+			stats.recordSuccess(latencyNanos);
+		} else {
+			stats.recordFailure(latencyNanos);
+		}
+		limiterFor(route).release(success, latencyNanos);
+		circuitBreakers.forRoute(route).onResult(success, latencyNanos);
+	}
+
+	private AdaptiveConcurrencyLimiter limiterFor(Route route) {
+		return route == Route.FALLBACK ? fallbackLimiter : defaultLimiter;
+	}
+
+	private Route decide(long now) {
+		HealthSnapshot health = healthMonitor.getSnapshot();
+		double defaultCost = defaultCost(health, now);
+		double fallbackCost = fallbackCost(health, now);
+		double best = Math.min(defaultCost, fallbackCost);
+		if (best > holdThresholdMillis) {
+			return Route.HOLD;
+		}
+		return defaultCost <= fallbackCost ? Route.DEFAULT : Route.FALLBACK;
+	}
+
+	private double defaultCost(HealthSnapshot health, long now) {
+		if (!health.defaultAvailable() || !isOpenForTraffic(Route.DEFAULT)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return cost(defaultStats, health.defaultMinResponseTime(), defaultFeeCostMillis, now);
+	}
+
+	private double fallbackCost(HealthSnapshot health, long now) {
+		if (!health.fallbackAvailable() || !isOpenForTraffic(Route.FALLBACK)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return cost(fallbackStats, health.fallbackMinResponseTime(), fallbackFeeCostMillis, now);
+	}
+
+	private boolean isOpenForTraffic(Route route) {
+		return limiterFor(route).hasCapacity() && circuitBreakers.forRoute(route).isCallPermitted(System.currentTimeMillis());
+	}
+
+	private double cost(ProcessorStats stats, int minResponseTime, double feeCostMillis, long now) {
+		double expectedLatency = Math.max(minResponseTime, stats.latencyMillis());
+		return expectedLatency + stats.errorRate(now, errorMemoryNanos) * errorPenaltyMillis + feeCostMillis;
+	}
+
+	public ProcessorStats getDefaultStats() {
+		return defaultStats;
+	}
+
+	public ProcessorStats getFallbackStats() {
+		return fallbackStats;
+	}
+
+	public AdaptiveConcurrencyLimiter getDefaultLimiter() {
+		return defaultLimiter;
+	}
+
+	public AdaptiveConcurrencyLimiter getFallbackLimiter() {
+		return fallbackLimiter;
+	}
+
+	public int getDefaultBreakerState() {
+		return circuitBreakers.forRoute(Route.DEFAULT).getState();
+	}
+
+	public int getFallbackBreakerState() {
+		return circuitBreakers.forRoute(Route.FALLBACK).getState();
+	}
+
+	public long getDefaultRouteCount() {
+		return defaultRoutes.sum();
+	}
+
+	public long getFallbackRouteCount() {
+		return fallbackRoutes.sum();
+	}
+
+	public long getHoldCount() {
+		return holds.sum();
+	}
+}
@@ -0,0 +1,71 @@
+package br.com.rinha.pagamentos.routing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ProcessorStats {
+
+	private final double latencyAlpha;
+	private final double errorAlpha;
+
+	private final AtomicLong latencyMillisBits = new AtomicLong(Double.doubleToRawLongBits(0d));
+	private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToRawLongBits(0d));
+	private final LongAdder successes = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+
+	private volatile long lastFailureNanos;
+
+	public ProcessorStats(double latencyAlpha, double errorAlpha) {
+		this.latencyAlpha = latencyAlpha;
+		this.errorAlpha = errorAlpha;
+	}
+
+	public void recordSuccess(long latencyNanos) {
+		successes.increment();
+		update(latencyMillisBits, latencyNanos / 1_000_000d, latencyAlpha);
+		update(errorRateBits, 0d, errorAlpha);
+	}
+
+	public void recordFailure(long latencyNanos) {
+		failures.increment();
+		lastFailureNanos = System.nanoTime();
+		update(latencyMillisBits, latencyNanos / 1_000_000d, latencyAlpha);
+		update(errorRateBits, 1d, errorAlpha);
+	}
+
+	public double latencyMillis() {
+		return Double.longBitsToDouble(latencyMillisBits.get());
+	}
+
+	public double errorRate(long nowNanos, long errorMemoryNanos) {
+		long lastFailure = lastFailureNanos;
+		if (lastFailure == 0) {
+			return 0d;
+		}
+		long sinceFailure = nowNanos - lastFailure;
+		if (sinceFailure >= errorMemoryNanos) {
+			return 0d;
+		}
+		double weight = 1d - (double) sinceFailure / errorMemoryNanos;
+		return Double.longBitsToDouble(errorRateBits.get()) * weight;
+	}
+
+	public long getSuccessCount() {
+		return successes.sum();
+	}
+
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	private static void update(AtomicLong bits, double sample, double alpha) {
+		for (;;) {
+			long current = bits.get();
+			double value = Double.longBitsToDouble(current);
+			double next = value + alpha * (sample - value);
+			if (bits.compareAndSet(current, Double.doubleToRawLongBits(next))) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package br.com.rinha.pagamentos.routing;
+
+public enum Route {
+	DEFAULT,
+	FALLBACK,
+	HOLD
+}
@@ -1,145 +1,308 @@
 package br.com.rinha.pagamentos.service;
 
-import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
+import br.com.rinha.pagamentos.http.ProcessorHttpClients;
+import br.com.rinha.pagamentos.idempotency.CompletedPaymentIndex;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.metrics.PaymentMetrics;
 import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
 import br.com.rinha.pagamentos.model.QueuedPayment;
 import br.com.rinha.pagamentos.model.PaymentSent;
 import br.com.rinha.pagamentos.model.Summary;
+import br.com.rinha.pagamentos.persistence.PersistenceBuffer;
+import br.com.rinha.pagamentos.persistence.PersistenceWatermark;
+import br.com.rinha.pagamentos.routing.HedgePolicy;
+import br.com.rinha.pagamentos.routing.ProcessorRouter;
+import br.com.rinha.pagamentos.routing.Route;
+import br.com.rinha.pagamentos.summary.LocalSummaryAggregator;
+import br.com.rinha.pagamentos.summary.PeerSummaryClient;
+import br.com.rinha.pagamentos.summary.RangeSummaryScript;
+import br.com.rinha.pagamentos.summary.SummaryCache;
+import br.com.rinha.pagamentos.summary.SummaryExchangeCodec;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class PaymentService {
 
-	private static final String PAYMENTS_AMOUNT_TS_KEY = "payments:amount:ts";
-	private static final String PAYMENTS_COUNT_TS_KEY = "payments:count:ts";
-	private static final String PROCESSING_QUEUE_KEY = "payments:processing-queue";
-
-	private static final RedisScript<Long> PERSIST_PAYMENT_SCRIPT =
-			new DefaultRedisScript<>(
-					"redis.call('TS.MADD', KEYS[1], ARGV[1], ARGV[2], KEYS[2], ARGV[1], 1); return 1",
-					Long.class
-			);
+	private static final Duration PERSISTENCE_AWAIT_TIMEOUT = Duration.ofSeconds(1);
+	private static final int DUPLICATE_STATUS = 422;
 
 	private static final RedisScript<List> GENERIC_COMMAND_SCRIPT =
 			new DefaultRedisScript<>("return redis.call(unpack(ARGV))", List.class);
 
-	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
 	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
-	private final WebClient webClient;
-	private final ProcessorHealthMonitor healthMonitor;
+	private final ProcessorHttpClients httpClients;
+	private final ProcessorRouter router;
+	private final RetryScheduler retryScheduler;
+	private final PersistenceBuffer persistenceBuffer;
+	private final PersistenceWatermark persistenceWatermark;
+	private final LocalSummaryAggregator localSummaryAggregator;
+	private final PeerSummaryClient peerSummaryClient;
+	private final SummaryCache summaryCache;
+	private final CompletedPaymentIndex completedPaymentIndex;
+	private final PaymentMetrics metrics;
+	private final HedgePolicy hedgePolicy;
+
+	private final LongAdder localSummaryHits = new LongAdder();
+	private final LongAdder redisSummaryQueries = new LongAdder();
 
 	@Value("${processor.default.payments.url}")
 	private String processorDefaultUrl;
 	@Value("${processor.fallback.payments.url}")
 	private String processorFallbackUrl;
+	@Value("${summary.local.enabled}")
+	private boolean localSummaryEnabled;
+	@Value("${summary.rollup.enabled}")
+	private boolean rollupsEnabled;
 
 	public PaymentService(
-			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
 			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
-			WebClient.Builder webClientBuilder,
-			ProcessorHealthMonitor healthMonitor) {
-		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+			ProcessorHttpClients httpClients,
+			ProcessorRouter router,
+			RetryScheduler retryScheduler,
+			PersistenceBuffer persistenceBuffer,
+			PersistenceWatermark persistenceWatermark,
+			LocalSummaryAggregator localSummaryAggregator,
+			PeerSummaryClient peerSummaryClient,
+			SummaryCache summaryCache,
+			CompletedPaymentIndex completedPaymentIndex,
+			PaymentMetrics metrics,
+			HedgePolicy hedgePolicy) {
 		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
-		this.webClient = webClientBuilder.build();
-		this.healthMonitor = healthMonitor;
+		this.httpClients = httpClients;
+		this.router = router;
+		this.retryScheduler = retryScheduler;
+		this.persistenceBuffer = persistenceBuffer;
+		this.persistenceWatermark = persistenceWatermark;
+		this.localSummaryAggregator = localSummaryAggregator;
+		this.peerSummaryClient = peerSummaryClient;
+		this.summaryCache = summaryCache;
+		this.completedPaymentIndex = completedPaymentIndex;
+		this.metrics = metrics;
+		this.hedgePolicy = hedgePolicy;
 	}
 
-	public void handlePayment(QueuedPayment payment) {
-		processPayment(payment);
+	public void processPayment(QueuedPayment payment, Runnable onDone) {
+		dispatch(payment)
+				.doFinally(signal -> onDone.run())
+				.subscribe(null, e -> { });
 	}
 
-	public void processPayment(QueuedPayment payment) {
-		final boolean isDefaultUp = healthMonitor.isDefaultProcessorAvailable();
-		final boolean isFallbackUp = healthMonitor.isFallbackProcessorAvailable();
-		final PaymentSent paymentSent = new PaymentSent(payment);
+	public Mono<Void> dispatch(QueuedPayment payment) {
+		return tryDispatch(payment)
+				.filter(Boolean::booleanValue)
+				.switchIfEmpty(requeue(payment))
+				.then();
+	}
 
-		if (isDefaultUp && isFallbackUp) {
-			trySendAndPersist("default", processorDefaultUrl, paymentSent)
-					.filter(Boolean::booleanValue)
-					.switchIfEmpty(trySendAndPersist("fallback", processorFallbackUrl, paymentSent))
-					.filter(Boolean::booleanValue)
-					.switchIfEmpty(requeue(payment))
-					.subscribe();
-		} else if (isDefaultUp) {
-			trySendAndPersist("default", processorDefaultUrl, paymentSent)
-					.filter(Boolean::booleanValue)
-					.switchIfEmpty(requeue(payment))
-					.subscribe();
-		} else if (isFallbackUp) {
-			trySendAndPersist("fallback", processorFallbackUrl, paymentSent)
-					.filter(Boolean::booleanValue)
-					.switchIfEmpty(requeue(payment))
-					.subscribe();
-		} else {
-			queuePayment(payment).subscribe();
-		}
+	public Mono<Void> dispatchQueued(QueuedPayment payment) {
+		return tryDispatchQueued(payment)
+				.filter(Boolean::booleanValue)
+				.switchIfEmpty(requeue(payment))
+				.then();
 	}
 
-	public Mono<Long> queuePayment(QueuedPayment payment) {
-		return reactiveQueuedRedisTemplate.opsForList().leftPush(PROCESSING_QUEUE_KEY, payment);
+	public Mono<Boolean> tryDispatchQueued(QueuedPayment payment) {
+		return completedPaymentIndex
+				.isCompletedAnywhere(payment.getCorrelationIdMsb(), payment.getCorrelationIdLsb())
+				.flatMap(completed -> completed ? Mono.just(true) : tryDispatch(payment));
+	}
+
+	public Mono<Boolean> tryDispatch(QueuedPayment payment) {
+		if (completedPaymentIndex.isCompleted(payment.getCorrelationIdMsb(), payment.getCorrelationIdLsb())) {
+			return Mono.just(true);
+		}
+
+		final Route primary = router.route();
+		if (primary == Route.HOLD) {
+			return Mono.just(false);
+		}
+
+		metrics.recordQueueWait(payment.getReceivedAtMillis());
+		final PaymentSent paymentSent = new PaymentSent(payment);
+		final long requestedAtMillis = paymentSent.getRequestedAtMillis();
+		persistenceWatermark.begin(requestedAtMillis);
+
+		final Mono<Boolean> primaryAttempt = hedgePolicy.appliesTo(primary)
+				? trySendHedged(paymentSent)
+				: trySendAndPersist(primary, paymentSent);
+
+		return primaryAttempt
+				.switchIfEmpty(Mono.defer(() -> {
+					Route secondary = router.alternativeTo(primary);
+					return secondary == Route.HOLD ? Mono.empty() : trySendAndPersist(secondary, paymentSent);
+				}))
+				.defaultIfEmpty(false)
+				.doFinally(signal -> persistenceWatermark.end(requestedAtMillis));
 	}
 
 	private Mono<Boolean> requeue(QueuedPayment payment) {
-		return this.queuePayment(payment).thenReturn(false);
+		return Mono.fromRunnable(() -> {
+			metrics.recordRequeue();
+			retryScheduler.schedule(payment);
+		}).thenReturn(false);
 	}
 
-	private Mono<Boolean> trySendAndPersist(String processorKey, String url, PaymentSent paymentSent) {
-		return webClient.post()
-				.uri(url)
-				.bodyValue(paymentSent)
-				.exchangeToMono(response -> {
-					if (response.statusCode().is2xxSuccessful()) {
-						return persistSuccessfulPaymentReactive(paymentSent, processorKey)
-								.thenReturn(true);
-					}
-					if (response.statusCode().isError()) {
-						return Mono.empty();
-					}
+	private Mono<Boolean> trySendAndPersist(Route route, PaymentSent paymentSent) {
+		return trySend(route, paymentSent, false)
+				.flatMap(accepted -> persistAccepted(route, paymentSent));
+	}
+
+	private Mono<Boolean> trySendHedged(PaymentSent paymentSent) {
+		final Sinks.Empty<Void> primaryDone = Sinks.empty();
+		hedgePolicy.onPrimarySent();
+
+		final Mono<Boolean> primarySide = trySend(Route.DEFAULT, paymentSent, true)
+				.doFinally(signal -> primaryDone.tryEmitEmpty());
+
+		final Mono<Boolean> parkSide = Mono.delay(hedgePolicy.delay())
+				.takeUntilOther(primaryDone.asMono().thenReturn(true))
+				.filter(tick -> hedgePolicy.tryAcquire())
+				.map(tick -> false);
+
+		return Mono.firstWithValue(primarySide, parkSide)
+				.onErrorResume(e -> Mono.empty())
+				.flatMap(accepted -> accepted ? persistAccepted(Route.DEFAULT, paymentSent) : Mono.just(false));
+	}
+
+	private Mono<Boolean> trySend(Route route, PaymentSent paymentSent, boolean hedgedPrimary) {
+		final String url = route == Route.FALLBACK ? processorFallbackUrl : processorDefaultUrl;
+
+		return Mono.defer(() -> {
+			if (!router.tryAcquire(route)) {
+				return Mono.empty();
+			}
+			final long startNanos = System.nanoTime();
+			return httpClients.forRoute(route).post()
+					.uri(url)
+					.bodyValue(paymentSent)
+					.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+					.doOnNext(status -> {
+						long latencyNanos = System.nanoTime() - startNanos;
+						router.recordOutcome(route, !status.isError() || status.value() == DUPLICATE_STATUS, latencyNanos);
+						metrics.recordProcessorResponse(route, status.value(), latencyNanos);
+						if (hedgedPrimary && !status.isError()) {
+							hedgePolicy.recordPrimaryLatency(latencyNanos);
+						}
+					})
+					.doOnError(e -> {
+						long latencyNanos = System.nanoTime() - startNanos;
+						router.recordOutcome(route, false, latencyNanos);
+						metrics.recordProcessorError(route, e, latencyNanos);
+					})
+					.doOnCancel(() -> router.release(route))
+					.flatMap(status -> status.is2xxSuccessful() || status.value() == DUPLICATE_STATUS
+							? Mono.just(true)
+							: Mono.<Boolean>empty())
+					.onErrorResume(e -> Mono.empty());
+		});
+	}
+
+	private Mono<Boolean> persistAccepted(Route route, PaymentSent paymentSent) {
+		return persistSuccessfulPaymentReactive(paymentSent, route == Route.FALLBACK ? "fallback" : "default")
+				.thenReturn(true)
+				.onErrorResume(e -> {
+					metrics.recordPersistError();
 					return Mono.just(false);
-				})
-				.onErrorResume(e -> Mono.empty());
+				});
 	}
 
-	private Mono<Long> persistSuccessfulPaymentReactive(PaymentSent paymentSent, String processorKey) {
-		return reactivePersistedRedisTemplate.execute(
-				PERSIST_PAYMENT_SCRIPT,
-				List.of(PAYMENTS_AMOUNT_TS_KEY + ":" + processorKey, PAYMENTS_COUNT_TS_KEY + ":" + processorKey),
-				List.of(
-						String.valueOf(paymentSent.getRequestedAt().toEpochMilli()),
-						String.valueOf(paymentSent.getAmount().movePointRight(2).longValue())
-				)
-		).next();
+	public Mono<Void> persistSuccessfulPaymentReactive(PaymentSent paymentSent, String processorKey) {
+		final long correlationIdMsb = paymentSent.getCorrelationIdMsb();
+		final long correlationIdLsb = paymentSent.getCorrelationIdLsb();
+		final long requestedAtMillis = paymentSent.getRequestedAtMillis();
+		final long amountCents = paymentSent.getAmountCents();
+		if (completedPaymentIndex.isCompleted(correlationIdMsb, correlationIdLsb)) {
+			return Mono.empty();
+		}
+		return persistenceBuffer.persist(processorKey, correlationIdMsb, correlationIdLsb, requestedAtMillis, amountCents)
+				.then(Mono.fromRunnable(() -> completedPaymentIndex.markCompleted(correlationIdMsb, correlationIdLsb)));
 	}
 
 	public Mono<PaymentsSummaryResponse> getPaymentsSummary(String from, String to) {
+		return Mono.defer(() -> {
+			final long startNanos = System.nanoTime();
+			return summaryCache.get(from, to, () -> summarize(from, to)).doOnSuccess(response -> metrics.recordSummaryQuery(System.nanoTime() - startNanos));
+		});
+	}
+
+	private Mono<PaymentsSummaryResponse> summarize(String from, String to) {
+		if (!localSummaryEnabled || from == null || to == null || !peerSummaryClient.isConfigured()) {
+			return getPaymentsSummaryFromRedis(from, to);
+		}
 
-		List<String> commandAndArgs = getRedisData(from, to);
+		return persistenceBuffer.awaitPersisted()
+				.timeout(PERSISTENCE_AWAIT_TIMEOUT, Mono.empty())
+				.then(Mono.defer(() -> summarizeLocally(from, to)));
+	}
+
+	private Mono<PaymentsSummaryResponse> summarizeLocally(String from, String to) {
+		final long fromMillis = Instant.parse(from).toEpochMilli();
+		final long toMillis = Instant.parse(to).toEpochMilli();
+		final long[] totals = new long[4];
+		if (!localSummaryAggregator.sum(fromMillis, toMillis, totals)) {
+			return getPaymentsSummaryFromRedis(from, to);
+		}
 
+		return peerSummaryClient.fetchFrame(fromMillis, toMillis)
+				.flatMap(frame -> {
+					if (SummaryExchangeCodec.decodeInto(frame, totals)) {
+						localSummaryHits.increment();
+						return Mono.just(toSummaryResponse(totals[0], totals[1], totals[2], totals[3]));
+					}
+					return getPaymentsSummaryFromRedis(from, to);
+				});
+	}
+
+	public Mono<PaymentsSummaryResponse> getPaymentsSummaryFromRedis(String from, String to) {
+		redisSummaryQueries.increment();
+
+		Mono<PaymentsSummaryResponse> query = from != null && to != null
+				? Mono.defer(() -> getPaymentsSummaryFromScript(Instant.parse(from).toEpochMilli(), Instant.parse(to).toEpochMilli()))
+				: Mono.defer(() -> executeCommand(getRedisData(from, to))).map(PaymentService::parseMRangeResponse);
+
+		return persistenceBuffer.awaitPersisted()
+				.timeout(PERSISTENCE_AWAIT_TIMEOUT, Mono.empty())
+				.then(query);
+	}
+
+	private Mono<PaymentsSummaryResponse> getPaymentsSummaryFromScript(long fromMillis, long toMillis) {
 		return reactivePersistedRedisTemplate.execute(
-				GENERIC_COMMAND_SCRIPT,
-				List.of(),
-				commandAndArgs
-		).collectList().map(results -> {
-			List<?> rawResultList = (List<?>) results.get(0);
-			return parseMRangeResponse(rawResultList);
-		});
+						RangeSummaryScript.SCRIPT,
+						RangeSummaryScript.keys(rollupsEnabled),
+						RangeSummaryScript.args(fromMillis, toMillis, rollupsEnabled))
+				.next()
+				.map(PaymentService::decodeSummaryReply);
 	}
 
-	private static List<String> getRedisData(String from, String to) {
-		List<String> commandAndArgs = new ArrayList<>(9);
+	private Mono<List<?>> executeCommand(List<String> commandAndArgs) {
+		return reactivePersistedRedisTemplate.execute(GENERIC_COMMAND_SCRIPT, List.of(), commandAndArgs)
+				.collectList()
+				.map(results -> results.isEmpty() ? List.of() : (List<?>) results.get(0));
+	}
+
+	static PaymentsSummaryResponse decodeSummaryReply(List<?> reply) {
+		return toSummaryResponse(
+				((Number) reply.get(0)).longValue(),
+				((Number) reply.get(1)).longValue(),
+				((Number) reply.get(2)).longValue(),
+				((Number) reply.get(3)).longValue());
+	}
+
+	static List<String> getRedisData(String from, String to) {
+		List<String> commandAndArgs = new ArrayList<>(10);
 		commandAndArgs.add("TS.MRANGE");
 		commandAndArgs.add((from != null) ? String.valueOf(Instant.parse(from).toEpochMilli()) : "-");
 		commandAndArgs.add((to != null) ? String.valueOf(Instant.parse(to).toEpochMilli()) : "+");
@@ -149,16 +312,17 @@ public class PaymentService {
 		commandAndArgs.add("9999999999999");
 		commandAndArgs.add("FILTER");
 		commandAndArgs.add("processor=(default,fallback)");
+		commandAndArgs.add("granularity=");
 		return commandAndArgs;
 	}
 
-	private PaymentsSummaryResponse parseMRangeResponse(List<?> rawResult) {
-
-		long defaultCount = 0;
-		long defaultAmountCents = 0;
-		long fallbackCount = 0;
-		long fallbackAmountCents = 0;
+	static PaymentsSummaryResponse parseMRangeResponse(List<?> rawResult) {
+		long[] totals = new long[4];
+		parseMRangeInto(rawResult, totals);
+		return toSummaryResponse(totals[0], totals[1], totals[2], totals[3]);
+	}
 
+	static void parseMRangeInto(List<?> rawResult, long[] totals) {
 		for (Object seriesDataObject : rawResult) {
 			List<?> seriesData = (List<?>) seriesDataObject;
 			List<?> labelsList = (List<?>) seriesData.get(1);
@@ -178,28 +342,34 @@ public class PaymentService {
 			}
 
 			List<?> dataPointsList = (List<?>) seriesData.get(2);
+			if (dataPointsList.isEmpty()) {
+				continue;
+			}
+			long value = Long.parseLong((String) ((List<?>) dataPointsList.get(0)).get(1));
 
 			switch (processor) {
 			case "default":
-				if (!dataPointsList.isEmpty()) {
-					long value = Long.parseLong((String) ((List<?>) dataPointsList.get(0)).get(1));
-					if ("count".equals(type)) defaultCount = value;
-					else defaultAmountCents = value;
-				}
+				totals["count".equals(type) ? 0 : 1] += value;
 				break;
 			case "fallback":
-				if (!dataPointsList.isEmpty()) {
-					long value = Long.parseLong((String) ((List<?>) dataPointsList.get(0)).get(1));
-					if ("count".equals(type)) fallbackCount = value;
-					else fallbackAmountCents = value;
-				}
+				totals["count".equals(type) ? 2 : 3] += value;
 				break;
 			}
 		}
+	}
 
-		Summary defaultSummary = new Summary(defaultCount, BigDecimal.valueOf(defaultAmountCents, 2));
-		Summary fallbackSummary = new Summary(fallbackCount, BigDecimal.valueOf(fallbackAmountCents, 2));
+	private static PaymentsSummaryResponse toSummaryResponse(long defaultCount, long defaultAmountCents, long fallbackCount, long fallbackAmountCents) {
+		Summary defaultSummary = new Summary(defaultCount, defaultAmountCents);
+		Summary fallbackSummary = new Summary(fallbackCount, fallbackAmountCents);
 
 		return new PaymentsSummaryResponse(defaultSummary, fallbackSummary);
 	}
+
+	public long getLocalSummaryHitCount() {
+		return localSummaryHits.sum();
+	}
+
+	public long getRedisSummaryQueryCount() {
+		return redisSummaryQueries.sum();
+	}
 }
@@ -0,0 +1,263 @@
+package br.com.rinha.pagamentos.service;
+
+import br.com.rinha.pagamentos.codec.PaymentJsonCodec;
+import br.com.rinha.pagamentos.config.BinaryQueuedPaymentSerializer;
+import br.com.rinha.pagamentos.config.KyroRedisSerializer;
+import br.com.rinha.pagamentos.config.LegacyQueuedPayment;
+import br.com.rinha.pagamentos.health.ProcessorHealthMonitor;
+import br.com.rinha.pagamentos.http.ProcessorHttpClients;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.model.HealthCheckResponse;
+import br.com.rinha.pagamentos.model.PaymentSent;
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.routing.CircuitBreakerRegistry;
+import br.com.rinha.pagamentos.routing.ProcessorRouter;
+import br.com.rinha.pagamentos.routing.Route;
+import br.com.rinha.pagamentos.summary.RangeSummaryScript;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class StartupWarmup implements SmartLifecycle {
+
+	private static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+	private static final int HTTP_CONCURRENCY = 16;
+	private static final long TYPICAL_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final byte[] PAYMENT_JSON =
+			"{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":19.90}".getBytes(StandardCharsets.UTF_8);
+	private static final String HEALTH_JSON = "{\"failing\":false,\"minResponseTime\":12}";
+	private static final String WARMUP_KEY = "payments:warmup";
+
+	private final ProcessorHttpClients httpClients;
+	private final ProcessorHealthMonitor healthMonitor;
+	private final ProcessorRouter router;
+	private final ReactiveStringRedisTemplate reactivePersistedRedisTemplate;
+	private final ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate;
+	private final WebClient.Builder webClientBuilder;
+	private final ObjectMapper objectMapper;
+	private final ConfigurableApplicationContext context;
+	private final boolean enabled;
+	private final int iterations;
+	private final int httpRequests;
+	private final Duration timeout;
+	private final boolean exitAfter;
+
+	private final LongAdder failures = new LongAdder();
+
+	private volatile boolean running;
+	private volatile long warmupNanos;
+
+	public StartupWarmup(
+			ProcessorHttpClients httpClients,
+			ProcessorHealthMonitor healthMonitor,
+			ProcessorRouter router,
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactivePersistedRedisTemplate,
+			@Qualifier("reactiveQueuedRedisTemplate") ReactiveRedisTemplate<String, QueuedPayment> reactiveQueuedRedisTemplate,
+			WebClient.Builder webClientBuilder,
+			ObjectMapper objectMapper,
+			ConfigurableApplicationContext context,
+			@Value("${warmup.enabled}") boolean enabled,
+			@Value("${warmup.iterations}") int iterations,
+			@Value("${warmup.http-requests}") int httpRequests,
+			@Value("${warmup.timeout-ms}") long timeoutMillis,
+			@Value("${warmup.exit-after}") boolean exitAfter) {
+		this.httpClients = httpClients;
+		this.healthMonitor = healthMonitor;
+		this.router = router;
+		this.reactivePersistedRedisTemplate = reactivePersistedRedisTemplate;
+		this.reactiveQueuedRedisTemplate = reactiveQueuedRedisTemplate;
+		this.webClientBuilder = webClientBuilder;
+		this.objectMapper = objectMapper;
+		this.context = context;
+		this.enabled = enabled;
+		this.iterations = iterations;
+		this.httpRequests = httpRequests;
+		this.timeout = Duration.ofMillis(timeoutMillis);
+		this.exitAfter = exitAfter;
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		if (!enabled) {
+			httpClients.prewarm().subscribe();
+			return;
+		}
+
+		long startNanos = System.nanoTime();
+		try {
+			warmCodecs();
+			warmSerializers();
+			warmRouting();
+			warmSummaryParsing();
+		} catch (RuntimeException e) {
+			failures.increment();
+		}
+		try {
+			Mono.when(warmRedis(), warmLocalHttp(), httpClients.prewarm()).block(timeout);
+		} catch (RuntimeException e) {
+			failures.increment();
+		}
+		warmupNanos = System.nanoTime() - startNanos;
+
+		if (exitAfter) {
+			Thread.ofPlatform().name("warmup-exit").start(() -> System.exit(SpringApplication.exit(context)));
+		}
+	}
+
+	private void warmCodecs() {
+		DefaultDataBufferFactory buffers = DefaultDataBufferFactory.sharedInstance;
+		PaymentsSummaryResponse summary = PaymentsSummaryResponse.EMPTY;
+		for (int i = 0; i < iterations; i++) {
+			QueuedPayment payment = PaymentJsonCodec.readQueuedPayment(buffers.wrap(PAYMENT_JSON));
+			DataBuffer sent = buffers.allocateBuffer(PaymentJsonCodec.PAYMENT_SENT_MAX_BYTES);
+			PaymentJsonCodec.writePaymentSent(new PaymentSent(payment), sent);
+			DataBuffer body = buffers.allocateBuffer(PaymentJsonCodec.SUMMARY_MAX_BYTES);
+			PaymentJsonCodec.writeSummary(summary, body);
+		}
+		try {
+			for (int i = 0; i < iterations / 16; i++) {
+				objectMapper.readValue(HEALTH_JSON, HealthCheckResponse.class);
+				objectMapper.writeValueAsBytes(summary);
+			}
+		} catch (IOException e) {
+			failures.increment();
+		}
+	}
+
+	private void warmSerializers() {
+		BinaryQueuedPaymentSerializer serializer = new BinaryQueuedPaymentSerializer();
+		QueuedPayment payment = new QueuedPayment(UUID.randomUUID().getMostSignificantBits(), 1L, 1990L,
+				System.currentTimeMillis(), 0);
+		for (int i = 0; i < iterations; i++) {
+			serializer.deserialize(serializer.serialize(payment.nextAttempt()));
+		}
+		KyroRedisSerializer legacy = new KyroRedisSerializer();
+		for (int i = 0; i < iterations / 16; i++) {
+			legacy.deserialize(legacy.serialize(new LegacyQueuedPayment()));
+		}
+	}
+
+	private void warmRouting() {
+		ProcessorRouter scratch = new ProcessorRouter(healthMonitor, new CircuitBreakerRegistry(null, 5, 1000, 2, 3000, 2000),
+				0.05, 0.15, 1000, 500, 1500, 3000, 0.2, 0.1,
+				32, 2, 128, 0.7, 2000);
+		for (int i = 0; i < iterations; i++) {
+			Route route = scratch.route();
+			if (route != Route.HOLD && scratch.tryAcquire(route)) {
+				scratch.recordOutcome(route, true, TYPICAL_LATENCY_NANOS);
+			}
+			scratch.alternativeTo(Route.DEFAULT);
+			router.canDispatch();
+		}
+	}
+
+	private void warmSummaryParsing() {
+		List<?> mrangeReply = List.of(
+				List.of("payments:count:ts:default",
+						List.of(List.of("type", "count"), List.of("processor", "default")),
+						List.of(List.of(1L, "10"))),
+				List.of("payments:amount:ts:fallback",
+						List.of(List.of("type", "amount"), List.of("processor", "fallback")),
+						List.of(List.of(1L, "1990"))));
+		List<?> scriptReply = List.of(10L, 19900L, 1L, 1990L);
+		for (int i = 0; i < iterations; i++) {
+			PaymentService.getRedisData("2025-07-15T12:34:56.000Z", "2025-07-15T12:35:56.000Z");
+			PaymentService.parseMRangeResponse(mrangeReply);
+			PaymentService.decodeSummaryReply(scriptReply);
+			RangeSummaryScript.args(0, i, true);
+		}
+	}
+
+	private Mono<Void> warmRedis() {
+		Mono<Void> stringConnections = Flux.range(0, HTTP_CONCURRENCY)
+				.flatMap(i -> reactivePersistedRedisTemplate.hasKey(WARMUP_KEY))
+				.then();
+		Mono<Void> queueConnections = reactiveQueuedRedisTemplate.opsForList().size(RetryScheduler.FRESH_QUEUE_KEY).then();
+		Mono<Void> summaryScript = reactivePersistedRedisTemplate
+				.execute(RangeSummaryScript.SCRIPT, RangeSummaryScript.keys(true), RangeSummaryScript.args(0, 0, true))
+				.then();
+		return Mono.when(stringConnections, queueConnections, summaryScript)
+				.onErrorResume(e -> {
+					failures.increment();
+					return Mono.empty();
+				});
+	}
+
+	private Mono<Void> warmLocalHttp() {
+		return Mono.usingWhen(
+				HttpServer.create()
+						.host("127.0.0.1")
+						.port(0)
+						.route(routes -> routes.post("/payments", (request, response) -> request.receive()
+								.then(response.status(HttpResponseStatus.OK).send())))
+						.bind(),
+				server -> {
+					WebClient client = webClientBuilder.build();
+					String url = "http://127.0.0.1:" + server.port() + "/payments";
+					return Flux.range(0, httpRequests)
+							.flatMap(i -> {
+								DataBuffer body = DefaultDataBufferFactory.sharedInstance.allocateBuffer(PaymentJsonCodec.PAYMENT_SENT_MAX_BYTES);
+								PaymentJsonCodec.writePaymentSent(new PaymentSent(new QueuedPayment(i, i, 1990L)), body);
+								return client.post()
+										.uri(url)
+										.bodyValue(body)
+										.retrieve()
+										.toBodilessEntity();
+							}, HTTP_CONCURRENCY)
+							.then();
+				},
+				server -> Mono.fromRunnable(server::disposeNow))
+				.onErrorResume(e -> {
+					failures.increment();
+					return Mono.empty();
+				});
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public int getPhase() {
+		return PHASE;
+	}
+
+	public long getWarmupMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(warmupNanos);
+	}
+
+	public long getFailureCount() {
+		return failures.sum();
+	}
+}
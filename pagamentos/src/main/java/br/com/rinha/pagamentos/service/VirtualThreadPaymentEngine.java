@@ -0,0 +1,224 @@
+package br.com.rinha.pagamentos.service;
+
+import br.com.rinha.pagamentos.codec.PaymentJsonCodec;
+import br.com.rinha.pagamentos.idempotency.CompletedPaymentIndex;
+import br.com.rinha.pagamentos.ingest.RetryScheduler;
+import br.com.rinha.pagamentos.metrics.PaymentMetrics;
+import br.com.rinha.pagamentos.model.PaymentSent;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.persistence.PersistenceWatermark;
+import br.com.rinha.pagamentos.routing.ProcessorRouter;
+import br.com.rinha.pagamentos.routing.Route;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class VirtualThreadPaymentEngine {
+
+	private static final int DUPLICATE_STATUS = 422;
+
+	private final PaymentService paymentService;
+	private final ProcessorRouter router;
+	private final RetryScheduler retryScheduler;
+	private final CompletedPaymentIndex completedPaymentIndex;
+	private final PaymentMetrics metrics;
+	private final PersistenceWatermark persistenceWatermark;
+	private final Executor executor;
+	private final HttpClient httpClient;
+	private final URI defaultUri;
+	private final URI fallbackUri;
+	private final Duration responseTimeout;
+	private final Semaphore defaultPermits;
+	private final Semaphore fallbackPermits;
+	private final long permitTimeoutMillis;
+
+	private final AtomicInteger running = new AtomicInteger();
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder requeued = new LongAdder();
+	private final LongAdder saturated = new LongAdder();
+
+	public VirtualThreadPaymentEngine(
+			PaymentService paymentService,
+			ProcessorRouter router,
+			RetryScheduler retryScheduler,
+			CompletedPaymentIndex completedPaymentIndex,
+			PaymentMetrics metrics,
+			PersistenceWatermark persistenceWatermark,
+			@Qualifier("virtualThreadExecutor") Executor executor,
+			@Value("${processor.default.payments.url}") String defaultUrl,
+			@Value("${processor.fallback.payments.url}") String fallbackUrl,
+			@Value("${http.client.connect-timeout-ms}") long connectTimeoutMillis,
+			@Value("${http.client.payments.response-timeout-ms}") long responseTimeoutMillis,
+			@Value("${pipeline.virtual.permits-per-processor}") int permitsPerProcessor,
+			@Value("${pipeline.virtual.permit-timeout-ms}") long permitTimeoutMillis) {
+		this.paymentService = paymentService;
+		this.router = router;
+		this.retryScheduler = retryScheduler;
+		this.completedPaymentIndex = completedPaymentIndex;
+		this.metrics = metrics;
+		this.persistenceWatermark = persistenceWatermark;
+		this.executor = executor;
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+				.executor(executor)
+				.build();
+		this.defaultUri = URI.create(defaultUrl);
+		this.fallbackUri = URI.create(fallbackUrl);
+		this.responseTimeout = Duration.ofMillis(responseTimeoutMillis);
+		this.defaultPermits = new Semaphore(permitsPerProcessor);
+		this.fallbackPermits = new Semaphore(permitsPerProcessor);
+		this.permitTimeoutMillis = permitTimeoutMillis;
+	}
+
+	public void submit(QueuedPayment payment, Runnable onDone) {
+		submitted.increment();
+		executor.execute(() -> {
+			running.incrementAndGet();
+			try {
+				process(payment);
+			} catch (RuntimeException e) {
+				requeue(payment);
+			} finally {
+				running.decrementAndGet();
+				onDone.run();
+			}
+		});
+	}
+
+	private void process(QueuedPayment payment) {
+		if (completedPaymentIndex.isCompleted(payment.getCorrelationIdMsb(), payment.getCorrelationIdLsb())) {
+			return;
+		}
+
+		Route primary = router.route();
+		if (primary == Route.HOLD) {
+			requeue(payment);
+			return;
+		}
+
+		metrics.recordQueueWait(payment.getReceivedAtMillis());
+		PaymentSent paymentSent = new PaymentSent(payment);
+		persistenceWatermark.begin(paymentSent.getRequestedAtMillis());
+		try {
+			if (send(primary, payment, paymentSent)) {
+				return;
+			}
+
+			Route secondary = router.alternativeTo(primary);
+			if (secondary != Route.HOLD && send(secondary, payment, paymentSent)) {
+				return;
+			}
+		} finally {
+			persistenceWatermark.end(paymentSent.getRequestedAtMillis());
+		}
+		requeue(payment);
+	}
+
+	private boolean send(Route route, QueuedPayment payment, PaymentSent paymentSent) {
+		Semaphore permits = route == Route.FALLBACK ? fallbackPermits : defaultPermits;
+		try {
+			if (!permits.tryAcquire(permitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				saturated.increment();
+				return false;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		try {
+			if (!router.tryAcquire(route)) {
+				return false;
+			}
+			long startNanos = System.nanoTime();
+			int status;
+			try {
+				status = httpClient.send(request(route, paymentSent), HttpResponse.BodyHandlers.discarding()).statusCode();
+			} catch (IOException e) {
+				long latencyNanos = System.nanoTime() - startNanos;
+				router.recordOutcome(route, false, latencyNanos);
+				metrics.recordProcessorError(route, e, latencyNanos);
+				return false;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				router.release(route);
+				return false;
+			}
+
+			long latencyNanos = System.nanoTime() - startNanos;
+			boolean accepted = (status >= 200 && status < 300) || status == DUPLICATE_STATUS;
+			router.recordOutcome(route, status < 400 || accepted, latencyNanos);
+			metrics.recordProcessorResponse(route, status, latencyNanos);
+			if (!accepted) {
+				return false;
+			}
+			try {
+				paymentService.persistSuccessfulPaymentReactive(paymentSent, route == Route.FALLBACK ? "fallback" : "default")
+						.block();
+			} catch (RuntimeException e) {
+				metrics.recordPersistError();
+				requeue(payment);
+				return true;
+			}
+			delivered.increment();
+			return true;
+		} finally {
+			permits.release();
+		}
+	}
+
+	private HttpRequest request(Route route, PaymentSent paymentSent) {
+		DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(PaymentJsonCodec.PAYMENT_SENT_MAX_BYTES);
+		PaymentJsonCodec.writePaymentSent(paymentSent, buffer);
+		byte[] body = new byte[buffer.readableByteCount()];
+		buffer.read(body);
+		return HttpRequest.newBuilder(route == Route.FALLBACK ? fallbackUri : defaultUri)
+				.timeout(responseTimeout)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+				.build();
+	}
+
+	private void requeue(QueuedPayment payment) {
+		requeued.increment();
+		metrics.recordRequeue();
+		retryScheduler.schedule(payment);
+	}
+
+	public int getRunningCount() {
+		return running.get();
+	}
+
+	public long getSubmittedCount() {
+		return submitted.sum();
+	}
+
+	public long getDeliveredCount() {
+		return delivered.sum();
+	}
+
+	public long getRequeuedCount() {
+		return requeued.sum();
+	}
+
+	public long getSaturatedCount() {
+		return saturated.sum();
+	}
+}
@@ -0,0 +1,104 @@
+package br.com.rinha.pagamentos.summary;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class BucketRing {
+
+	static final int PROCESSORS = 2;
+
+	private static final int STARTED = 1;
+	private static final int FINISHED = 2;
+	private static final int VALUES = 3;
+	private static final int STRIDE = VALUES + PROCESSORS * 2;
+	private static final long EMPTY = -1L;
+	private static final long RESETTING = Long.MIN_VALUE;
+
+	private final int mask;
+	private final AtomicLongArray data;
+
+	BucketRing(int requestedBuckets) {
+		int buckets = 2;
+		while (buckets < requestedBuckets) {
+			buckets <<= 1;
+		}
+		this.mask = buckets - 1;
+		this.data = new AtomicLongArray(buckets * STRIDE);
+		for (int i = 0; i < buckets; i++) {
+			data.set(i * STRIDE, EMPTY);
+		}
+	}
+
+	int size() {
+		return mask + 1;
+	}
+
+	boolean add(long key, int processorIndex, long amountCents) {
+		int base = (int) (key & mask) * STRIDE;
+		for (;;) {
+			long tag = data.get(base);
+			if (tag == key) {
+				data.getAndIncrement(base + STARTED);
+				if (data.get(base) == key) {
+					int slot = base + VALUES + processorIndex * 2;
+					data.getAndIncrement(slot);
+					data.getAndAdd(slot + 1, amountCents);
+					data.getAndIncrement(base + FINISHED);
+					return true;
+				}
+				data.getAndIncrement(base + FINISHED);
+				continue;
+			}
+			if (tag == RESETTING) {
+				Thread.onSpinWait();
+				continue;
+			}
+			if (tag > key) {
+				return false;
+			}
+			if (data.compareAndSet(base, tag, RESETTING)) {
+				while (data.get(base + STARTED) != data.get(base + FINISHED)) {
+					Thread.onSpinWait();
+				}
+				for (int i = VALUES; i < STRIDE; i++) {
+					data.set(base + i, 0);
+				}
+				data.set(base, key);
+			}
+		}
+	}
+
+	boolean accumulate(long key, long[] totals) {
+		int base = (int) (key & mask) * STRIDE;
+		for (;;) {
+			long tag = data.get(base);
+			if (tag == RESETTING) {
+				Thread.onSpinWait();
+				continue;
+			}
+			if (tag > key) {
+				return false;
+			}
+			if (tag < key) {
+				return true;
+			}
+			long finished = data.get(base + FINISHED);
+			long defaultCount = data.get(base + VALUES);
+			long defaultCents = data.get(base + VALUES + 1);
+			long fallbackCount = data.get(base + VALUES + 2);
+			long fallbackCents = data.get(base + VALUES + 3);
+			long started = data.get(base + STARTED);
+			if (data.get(base) != key) {
+				return false;
+			}
+			if (started != finished) {
+				Thread.onSpinWait();
+				continue;
+			}
+			totals[0] += defaultCount;
+			totals[1] += defaultCents;
+			totals[2] += fallbackCount;
+			totals[3] += fallbackCents;
+			return true;
+		}
+	}
+}
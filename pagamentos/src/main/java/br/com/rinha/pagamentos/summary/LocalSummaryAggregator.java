@@ -0,0 +1,90 @@
+package br.com.rinha.pagamentos.summary;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class LocalSummaryAggregator {
+
+	public static final int DEFAULT_PROCESSOR = 0;
+	public static final int FALLBACK_PROCESSOR = 1;
+
+	private static final long MILLIS_PER_SECOND = 1000L;
+
+	private final BucketRing millisRing;
+	private final BucketRing secondsRing;
+	private final long coverageStartMillis;
+	private final AtomicLong lostUpToMillis = new AtomicLong(Long.MIN_VALUE);
+
+	public LocalSummaryAggregator(
+			@Value("${summary.local.window-seconds}") int windowSeconds,
+			@Value("${summary.local.edge-seconds}") int edgeSeconds) {
+		this.millisRing = new BucketRing(Math.min(windowSeconds, edgeSeconds) * (int) MILLIS_PER_SECOND);
+		this.secondsRing = new BucketRing(windowSeconds);
+		this.coverageStartMillis = System.currentTimeMillis();
+	}
+
+	public static int processorIndex(String processorKey) {
+		return "fallback".equals(processorKey) ? FALLBACK_PROCESSOR : DEFAULT_PROCESSOR;
+	}
+
+	public void record(int processorIndex, long requestedAtMillis, long amountCents) {
+		millisRing.add(requestedAtMillis, processorIndex, amountCents);
+		boolean recordedSecond = secondsRing.add(Math.floorDiv(requestedAtMillis, MILLIS_PER_SECOND), processorIndex, amountCents);
+		if (!recordedSecond || requestedAtMillis < coverageStartMillis) {
+			lostUpToMillis.accumulateAndGet(requestedAtMillis, Math::max);
+		}
+	}
+
+	public boolean sum(long fromMillis, long toMillis, long[] totals) {
+		totals[0] = 0;
+		totals[1] = 0;
+		totals[2] = 0;
+		totals[3] = 0;
+
+		if (fromMillis > toMillis) {
+			return true;
+		}
+		if (fromMillis < coverageStartMillis || fromMillis <= lostUpToMillis.get()) {
+			return false;
+		}
+
+		long firstFullSecond = Math.floorDiv(fromMillis + MILLIS_PER_SECOND - 1, MILLIS_PER_SECOND);
+		long endFullSecond = Math.floorDiv(toMillis + 1, MILLIS_PER_SECOND);
+
+		if (firstFullSecond >= endFullSecond) {
+			return sumMillis(fromMillis, toMillis, totals);
+		}
+		if (endFullSecond - firstFullSecond > secondsRing.size()) {
+			return false;
+		}
+
+		if (!sumMillis(fromMillis, firstFullSecond * MILLIS_PER_SECOND - 1, totals)) {
+			return false;
+		}
+		for (long second = firstFullSecond; second < endFullSecond; second++) {
+			if (!secondsRing.accumulate(second, totals)) {
+				return false;
+			}
+		}
+		return sumMillis(endFullSecond * MILLIS_PER_SECOND, toMillis, totals);
+	}
+
+	private boolean sumMillis(long fromMillis, long toMillis, long[] totals) {
+		if (toMillis - fromMillis >= millisRing.size()) {
+			return false;
+		}
+		for (long millis = fromMillis; millis <= toMillis; millis++) {
+			if (!millisRing.accumulate(millis, totals)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long getCoverageStartMillis() {
+		return coverageStartMillis;
+	}
+}
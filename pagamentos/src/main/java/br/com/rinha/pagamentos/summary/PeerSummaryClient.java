@@ -0,0 +1,45 @@
+package br.com.rinha.pagamentos.summary;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@Component
+public class PeerSummaryClient {
+
+	private static final String PEER_SUMMARY_PATH = "/internal/summary";
+	private static final byte[] NO_FRAME = new byte[0];
+
+	private final WebClient webClient;
+	private final String peerUrl;
+	private final Duration timeout;
+
+	public PeerSummaryClient(
+			WebClient.Builder webClientBuilder,
+			@Value("${summary.peer.url}") String peerUrl,
+			@Value("${summary.peer.timeout-ms}") long timeoutMillis) {
+		this.webClient = webClientBuilder.build();
+		this.peerUrl = peerUrl;
+		this.timeout = Duration.ofMillis(timeoutMillis);
+	}
+
+	public boolean isConfigured() {
+		return peerUrl != null && !peerUrl.isBlank();
+	}
+
+	public Mono<byte[]> fetchFrame(long fromMillis, long toMillis) {
+		if (!isConfigured()) {
+			return Mono.just(NO_FRAME);
+		}
+		return webClient.get()
+				.uri(peerUrl + PEER_SUMMARY_PATH + "?from={from}&to={to}", fromMillis, toMillis)
+				.retrieve()
+				.bodyToMono(byte[].class)
+				.timeout(timeout)
+				.onErrorReturn(NO_FRAME)
+				.defaultIfEmpty(NO_FRAME);
+	}
+}
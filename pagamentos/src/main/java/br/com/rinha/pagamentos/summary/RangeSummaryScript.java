@@ -0,0 +1,105 @@
+package br.com.rinha.pagamentos.summary;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class RangeSummaryScript {
+
+	private static final String[] RAW_KEYS = {
+			"payments:count:ts:default",
+			"payments:amount:ts:default",
+			"payments:count:ts:fallback",
+			"payments:amount:ts:fallback"
+	};
+
+	@SuppressWarnings("unchecked")
+	private static final Class<List<Long>> RESULT_TYPE = (Class<List<Long>>) (Class<?>) List.class;
+
+	public static final RedisScript<List<Long>> SCRIPT = new DefaultRedisScript<>(
+			"local from = tonumber(ARGV[1]) " +
+					"local to = tonumber(ARGV[2]) + 1 " +
+					"local margin = tonumber(ARGV[3]) " +
+					"local levels = #ARGV - 3 " +
+					"local buckets = {} " +
+					"local covered = {} " +
+					"for l = 1, levels do " +
+					"  buckets[l] = tonumber(ARGV[3 + l]) " +
+					"  local since = redis.call('GET', KEYS[4 + 4 * levels + l]) " +
+					"  if since then covered[l] = math.ceil((tonumber(since) + margin) / buckets[l]) * buckets[l] " +
+					"  else covered[l] = math.huge end " +
+					"end " +
+					"local totals = {0, 0, 0, 0} " +
+					"local function range(key, s, e) " +
+					"  local r = redis.call('TS.RANGE', key, s, e - 1, 'AGGREGATION', 'sum', 9999999999999) " +
+					"  if #r == 0 then return 0 end " +
+					"  return tonumber(r[1][2]) " +
+					"end " +
+					"local function add(p, level, s, e) " +
+					"  for i = p, p + 1 do " +
+					"    totals[i] = totals[i] + range(KEYS[i + 4 * level], s, e) " +
+					"  end " +
+					"end " +
+					"local function collect(p, latest, level, s, e) " +
+					"  if s >= e then return end " +
+					"  if level > levels then add(p, 0, s, e) return end " +
+					"  local g = buckets[level] " +
+					"  local first = math.max(math.ceil(s / g) * g, covered[level]) " +
+					"  local last = math.floor(e / g) * g " +
+					"  if latest then last = math.min(last, math.floor(latest / g) * g) end " +
+					"  if first >= last then collect(p, latest, level + 1, s, e) return end " +
+					"  collect(p, latest, level + 1, s, first) " +
+					"  add(p, level, first, last) " +
+					"  collect(p, latest, level + 1, last, e) " +
+					"end " +
+					"for p = 1, 3, 2 do " +
+					"  local latest = nil " +
+					"  for i = p, p + 1 do " +
+					"    local sample = redis.call('TS.GET', KEYS[i]) " +
+					"    if #sample > 0 and (latest == nil or sample[1] > latest) then latest = sample[1] end " +
+					"  end " +
+					"  collect(p, latest, 1, from, to) " +
+					"end " +
+					"return totals",
+			RESULT_TYPE);
+
+	private static final List<String> ROLLUP_KEYS = keys(RollupLevels.LEVEL_MILLIS.length);
+	private static final List<String> RAW_ONLY_KEYS = keys(0);
+
+	private RangeSummaryScript() {
+	}
+
+	public static List<String> keys(boolean rollupsEnabled) {
+		return rollupsEnabled ? ROLLUP_KEYS : RAW_ONLY_KEYS;
+	}
+
+	public static List<String> args(long fromMillis, long toMillis, boolean rollupsEnabled) {
+		int levels = rollupsEnabled ? RollupLevels.LEVEL_MILLIS.length : 0;
+		List<String> args = new ArrayList<>(3 + levels);
+		args.add(String.valueOf(fromMillis));
+		args.add(String.valueOf(toMillis));
+		args.add(String.valueOf(RollupLevels.COVERAGE_MARGIN_MILLIS));
+		for (int level = 0; level < levels; level++) {
+			args.add(String.valueOf(RollupLevels.LEVEL_MILLIS[level]));
+		}
+		return args;
+	}
+
+	private static List<String> keys(int levels) {
+		List<String> keys = new ArrayList<>(RAW_KEYS.length * (levels + 1) + levels);
+		for (String rawKey : RAW_KEYS) {
+			keys.add(rawKey);
+		}
+		for (int level = 0; level < levels; level++) {
+			for (String rawKey : RAW_KEYS) {
+				keys.add(RollupLevels.rollupKey(rawKey, level));
+			}
+		}
+		for (int level = 0; level < levels; level++) {
+			keys.add(RollupLevels.sinceKey(level));
+		}
+		return List.copyOf(keys);
+	}
+}
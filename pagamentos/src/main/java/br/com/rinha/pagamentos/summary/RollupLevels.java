@@ -0,0 +1,20 @@
+package br.com.rinha.pagamentos.summary;
+
+public final class RollupLevels {
+
+	public static final long[] LEVEL_MILLIS = {60_000L, 1_000L};
+	public static final String[] LEVEL_LABELS = {"1m", "1s"};
+	public static final String SINCE_KEY_PREFIX = "payments:rollup:since:";
+	public static final long COVERAGE_MARGIN_MILLIS = 1_000L;
+
+	private RollupLevels() {
+	}
+
+	public static String rollupKey(String rawKey, int level) {
+		return rawKey + ":" + LEVEL_LABELS[level];
+	}
+
+	public static String sinceKey(int level) {
+		return SINCE_KEY_PREFIX + LEVEL_LABELS[level];
+	}
+}
@@ -0,0 +1,194 @@
+package br.com.rinha.pagamentos.summary;
+
+import br.com.rinha.pagamentos.persistence.PersistenceWatermark;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class SummaryBarrier {
+
+	private static final String WATERMARKS_KEY = "payments:watermarks";
+	private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(1);
+	private static final int REFRESHES_PER_TTL = 3;
+
+	private static final RedisScript<Long> PRUNE_SCRIPT =
+			new DefaultRedisScript<>(
+					"local fields = redis.call('HGETALL', KEYS[1]) " +
+							"local cutoff = tonumber(ARGV[1]) " +
+							"local pruned = 0 " +
+							"for i = 1, #fields, 2 do " +
+							"  local publishedAt = tonumber(string.match(fields[i + 1], ':(%d+)$')) " +
+							"  if publishedAt == nil or publishedAt < cutoff then " +
+							"    redis.call('HDEL', KEYS[1], fields[i]) " +
+							"    pruned = pruned + 1 " +
+							"  end " +
+							"end " +
+							"return pruned",
+					Long.class
+			);
+
+	private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+	private final PersistenceWatermark watermark;
+	private final String nodeId = UUID.randomUUID().toString();
+	private final boolean enabled;
+	private final Duration pollInterval;
+	private final long maxWaitMillis;
+	private final long nodeTtlMillis;
+	private final long refreshMillis;
+
+	private final LongAdder immediate = new LongAdder();
+	private final LongAdder waited = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final LongAdder publishes = new LongAdder();
+	private final LongAdder pruned = new LongAdder();
+
+	private volatile long lastPublishedWatermark = Long.MIN_VALUE;
+	private volatile long lastPublishedAt;
+
+	public SummaryBarrier(
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactiveRedisTemplate,
+			PersistenceWatermark watermark,
+			@Value("${summary.barrier.enabled}") boolean enabled,
+			@Value("${summary.barrier.poll-ms}") long pollMillis,
+			@Value("${summary.barrier.max-wait-ms}") long maxWaitMillis,
+			@Value("${summary.barrier.node-ttl-ms}") long nodeTtlMillis) {
+		this.reactiveRedisTemplate = reactiveRedisTemplate;
+		this.watermark = watermark;
+		this.enabled = enabled;
+		this.pollInterval = Duration.ofMillis(pollMillis);
+		this.maxWaitMillis = maxWaitMillis;
+		this.nodeTtlMillis = nodeTtlMillis;
+		this.refreshMillis = nodeTtlMillis / REFRESHES_PER_TTL;
+	}
+
+	@Scheduled(fixedRateString = "${summary.barrier.publish-interval-ms}")
+	public void publish() {
+		if (!enabled) {
+			return;
+		}
+		long publishedAt = System.currentTimeMillis();
+		long current = watermark.current();
+		if (current == lastPublishedWatermark && publishedAt - lastPublishedAt < refreshMillis) {
+			return;
+		}
+		lastPublishedWatermark = current;
+		lastPublishedAt = publishedAt;
+		publishes.increment();
+		reactiveRedisTemplate.opsForHash()
+				.put(WATERMARKS_KEY, nodeId, current + ":" + publishedAt)
+				.subscribe(null, e -> lastPublishedWatermark = Long.MIN_VALUE);
+	}
+
+	@Scheduled(fixedDelayString = "${summary.barrier.node-ttl-ms}")
+	public void pruneStaleNodes() {
+		if (!enabled) {
+			return;
+		}
+		String cutoff = String.valueOf(System.currentTimeMillis() - nodeTtlMillis);
+		reactiveRedisTemplate.execute(PRUNE_SCRIPT, List.of(WATERMARKS_KEY), List.of(cutoff))
+				.subscribe(pruned::add, e -> { });
+	}
+
+	public Mono<Void> awaitPersistedThrough(String to) {
+		if (!enabled) {
+			return Mono.empty();
+		}
+		return Mono.defer(() -> {
+			final long startNanos = System.nanoTime();
+			final long toMillis = to != null ? Instant.parse(to).toEpochMilli() : System.currentTimeMillis();
+			final long deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+			final Mono<Boolean> check = Mono.defer(() -> passed(toMillis));
+
+			return check.flatMap(first -> {
+				if (first) {
+					immediate.increment();
+					return Mono.<Void>empty();
+				}
+				return Mono.delay(pollInterval)
+						.then(check)
+						.filter(Boolean::booleanValue)
+						.repeatWhenEmpty(attempts -> attempts.takeWhile(attempt -> System.nanoTime() < deadlineNanos))
+						.switchIfEmpty(Mono.fromRunnable(timeouts::increment))
+						.doFinally(signal -> {
+							waited.increment();
+							waitNanos.add(System.nanoTime() - startNanos);
+						})
+						.then();
+			});
+		});
+	}
+
+	private Mono<Boolean> passed(long toMillis) {
+		if (watermark.getPendingCount() > 0 && watermark.current() <= toMillis) {
+			return Mono.just(false);
+		}
+		return reactiveRedisTemplate.<String, String>opsForHash()
+				.entries(WATERMARKS_KEY)
+				.all(entry -> peerPassed(entry, toMillis))
+				.onErrorReturn(true);
+	}
+
+	private boolean peerPassed(Map.Entry<String, String> entry, long toMillis) {
+		if (nodeId.equals(entry.getKey())) {
+			return true;
+		}
+		String value = entry.getValue();
+		int separator = value.indexOf(':');
+		if (separator < 0) {
+			return true;
+		}
+		long peerWatermark = Long.parseLong(value, 0, separator, 10);
+		long publishedAt = Long.parseLong(value, separator + 1, value.length(), 10);
+		return peerWatermark > toMillis || publishedAt < System.currentTimeMillis() - nodeTtlMillis;
+	}
+
+	@PreDestroy
+	public void withdraw() {
+		try {
+			reactiveRedisTemplate.opsForHash().remove(WATERMARKS_KEY, nodeId).block(SHUTDOWN_TIMEOUT);
+		} catch (RuntimeException ignored) {
+		}
+	}
+
+	public long getImmediateCount() {
+		return immediate.sum();
+	}
+
+	public long getWaitedCount() {
+		return waited.sum();
+	}
+
+	public long getTimeoutCount() {
+		return timeouts.sum();
+	}
+
+	public long getPublishCount() {
+		return publishes.sum();
+	}
+
+	public long getPrunedCount() {
+		return pruned.sum();
+	}
+
+	public long getMeanWaitMicros() {
+		long count = waited.sum();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.sum() / count);
+	}
+}
@@ -0,0 +1,221 @@
+package br.com.rinha.pagamentos.summary;
+
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+@Component
+public class SummaryCache implements MessageListener {
+
+	private static final String INVALIDATION_CHANNEL = "summary:invalidations";
+	private static final ChannelTopic INVALIDATION_TOPIC = new ChannelTopic(INVALIDATION_CHANNEL);
+	private static final String MESSAGE_PREFIX = "summary|";
+
+	private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+	private final String nodeId = UUID.randomUUID().toString();
+	private final boolean enabled;
+	private final int maxEntries;
+	private final long settleMillis;
+	private final ConcurrentHashMap<Window, Mono<PaymentsSummaryResponse>> inFlight = new ConcurrentHashMap<>();
+	private final LinkedHashMap<Window, SettledEntry> settled;
+	private final AtomicLong generation = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder stored = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+	private final LongAdder remoteInvalidations = new LongAdder();
+
+	public SummaryCache(
+			@Qualifier("reactivePersistedRedisTemplate") ReactiveStringRedisTemplate reactiveRedisTemplate,
+			@Value("${summary.cache.enabled}") boolean enabled,
+			@Value("${summary.cache.max-entries}") int maxEntries,
+			@Value("${summary.cache.settle-ms}") long settleMillis) {
+		this.reactiveRedisTemplate = reactiveRedisTemplate;
+		this.enabled = enabled;
+		this.maxEntries = maxEntries;
+		this.settleMillis = settleMillis;
+		this.settled = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Window, SettledEntry> eldest) {
+				if (size() > SummaryCache.this.maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public Mono<PaymentsSummaryResponse> get(String from, String to, Supplier<Mono<PaymentsSummaryResponse>> loader) {
+		if (!enabled) {
+			return loader.get();
+		}
+
+		return Mono.defer(() -> {
+			final Window window = new Window(from, to);
+			final SettledEntry entry;
+			synchronized (settled) {
+				entry = settled.get(window);
+			}
+			if (entry != null) {
+				hits.increment();
+				return Mono.just(entry.response());
+			}
+
+			Mono<PaymentsSummaryResponse> existing = inFlight.get(window);
+			if (existing != null) {
+				coalesced.increment();
+				return existing;
+			}
+			return load(window, loader);
+		});
+	}
+
+	private Mono<PaymentsSummaryResponse> load(Window window, Supplier<Mono<PaymentsSummaryResponse>> loader) {
+		final long startGeneration = generation.get();
+		final long[] bounds = settledBounds(window);
+
+		final AtomicReference<Mono<PaymentsSummaryResponse>> self = new AtomicReference<>();
+		Mono<PaymentsSummaryResponse> shared = Mono.defer(loader)
+				.doOnNext(response -> {
+					if (bounds != null && generation.get() == startGeneration) {
+						synchronized (settled) {
+							settled.put(window, new SettledEntry(bounds[0], bounds[1], response));
+						}
+						stored.increment();
+					}
+				})
+				.doFinally(signal -> inFlight.remove(window, self.get()))
+				.cache();
+		self.set(shared);
+
+		Mono<PaymentsSummaryResponse> existing = inFlight.putIfAbsent(window, shared);
+		if (existing != null) {
+			coalesced.increment();
+			return existing;
+		}
+		loads.increment();
+		return shared;
+	}
+
+	private long[] settledBounds(Window window) {
+		if (window.from() == null || window.to() == null) {
+			return null;
+		}
+		long fromMillis = Instant.parse(window.from()).toEpochMilli();
+		long toMillis = Instant.parse(window.to()).toEpochMilli();
+		if (toMillis >= System.currentTimeMillis() - settleMillis) {
+			return null;
+		}
+		return new long[]{fromMillis, toMillis};
+	}
+
+	public void onPersisted(long requestedAtMillis) {
+		if (!enabled || requestedAtMillis >= System.currentTimeMillis() - settleMillis) {
+			return;
+		}
+		invalidate(requestedAtMillis);
+		reactiveRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, MESSAGE_PREFIX + nodeId + "|" + requestedAtMillis)
+				.onErrorResume(e -> Mono.empty())
+				.subscribe();
+	}
+
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		if (!enabled) {
+			return;
+		}
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		if (!body.startsWith(MESSAGE_PREFIX)) {
+			return;
+		}
+		String[] parts = body.split("\\|");
+		if (parts.length != 3 || nodeId.equals(parts[1])) {
+			return;
+		}
+		try {
+			invalidate(Long.parseLong(parts[2]));
+			remoteInvalidations.increment();
+		} catch (NumberFormatException ignored) {
+		}
+	}
+
+	private void invalidate(long requestedAtMillis) {
+		generation.incrementAndGet();
+		synchronized (settled) {
+			Iterator<SettledEntry> entries = settled.values().iterator();
+			while (entries.hasNext()) {
+				SettledEntry entry = entries.next();
+				if (entry.fromMillis() <= requestedAtMillis && requestedAtMillis <= entry.toMillis()) {
+					entries.remove();
+					invalidations.increment();
+				}
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	public long getLoadCount() {
+		return loads.sum();
+	}
+
+	public long getStoredCount() {
+		return stored.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	public long getRemoteInvalidationCount() {
+		return remoteInvalidations.sum();
+	}
+
+	public ChannelTopic getTopic() {
+		return INVALIDATION_TOPIC;
+	}
+
+	public int getSize() {
+		synchronized (settled) {
+			return settled.size();
+		}
+	}
+
+	private record Window(String from, String to) {
+	}
+
+	private record SettledEntry(long fromMillis, long toMillis, PaymentsSummaryResponse response) {
+	}
+}
@@ -0,0 +1,37 @@
+package br.com.rinha.pagamentos.summary;
+
+import java.nio.ByteBuffer;
+
+public final class SummaryExchangeCodec {
+
+	public static final int FRAME_SIZE = Byte.BYTES + 4 * Long.BYTES;
+
+	private static final byte COVERED = 1;
+	private static final byte NOT_COVERED = 0;
+
+	private SummaryExchangeCodec() {
+	}
+
+	public static byte[] encode(boolean covered, long[] totals) {
+		ByteBuffer buffer = ByteBuffer.allocate(FRAME_SIZE);
+		buffer.put(covered ? COVERED : NOT_COVERED);
+		for (int i = 0; i < 4; i++) {
+			buffer.putLong(covered ? totals[i] : 0L);
+		}
+		return buffer.array();
+	}
+
+	public static boolean decodeInto(byte[] frame, long[] totals) {
+		if (frame == null || frame.length != FRAME_SIZE) {
+			return false;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		if (buffer.get() != COVERED) {
+			return false;
+		}
+		for (int i = 0; i < 4; i++) {
+			totals[i] += buffer.getLong();
+		}
+		return true;
+	}
+}
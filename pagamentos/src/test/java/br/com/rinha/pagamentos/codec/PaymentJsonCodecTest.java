@@ -0,0 +1,127 @@
+package br.com.rinha.pagamentos.codec;
+
+import br.com.rinha.pagamentos.model.PaymentSent;
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import br.com.rinha.pagamentos.model.Summary;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentJsonCodecTest {
+
+	private static final String CORRELATION_ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+	@Test
+	void readsPayment() {
+		QueuedPayment payment = read("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":19.90}");
+
+		assertEquals(UUID.fromString(CORRELATION_ID), payment.getCorrelationId());
+		assertEquals(1_990, payment.getAmountCents());
+	}
+
+	@Test
+	void acceptsUppercaseHexWhitespaceAndUnknownKeys() {
+		QueuedPayment payment = read("{ \"extra\" : {\"nested\":[1,\"}\"]},\n\"amount\" : 5 ,\"correlationId\":\"" + CORRELATION_ID.toUpperCase() + "\" }");
+
+		assertEquals(UUID.fromString(CORRELATION_ID), payment.getCorrelationId());
+		assertEquals(500, payment.getAmountCents());
+	}
+
+	@Test
+	void readsAmountVariants() {
+		assertEquals(1_990, amountOf("\"19.90\""));
+		assertEquals(1_990, amountOf("19.9"));
+		assertEquals(1_990, amountOf("19.9000"));
+		assertEquals(1_990, amountOf("1.99e1"));
+		assertEquals(1_990, amountOf("1990E-2"));
+		assertEquals(50, amountOf("0.5"));
+		assertEquals(-1_250, amountOf("-12.50"));
+	}
+
+	@Test
+	void rejectsMalformedCorrelationId() {
+		assertMalformed("{\"correlationId\":\"4a7901b87-d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":1}");
+		assertMalformed("{\"correlationId\":\"4a7901b87d264d9daa194dc1c7cf60b3\",\"amount\":1}");
+		assertMalformed("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b\",\"amount\":1}");
+		assertMalformed("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b30\",\"amount\":1}");
+		assertMalformed("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60g3\",\"amount\":1}");
+		assertMalformed("{\"correlationId\":\"4a7901b8--7d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":1}");
+		assertMalformed("{\"correlationId\":12,\"amount\":1}");
+	}
+
+	@Test
+	void rejectsMalformedAmount() {
+		assertMalformed(payload("19.999"));
+		assertMalformed(payload("19.901"));
+		assertMalformed(payload("1.9991e1"));
+		assertMalformed(payload("19."));
+		assertMalformed(payload("019.90"));
+		assertMalformed(payload(".5"));
+		assertMalformed(payload("\"abc\""));
+		assertMalformed(payload("12345678901234567"));
+		assertMalformed(payload("1e30"));
+		assertMalformed(payload("1e"));
+	}
+
+	@Test
+	void rejectsIncompletePayloads() {
+		assertMalformed("{\"amount\":1}");
+		assertMalformed("{\"correlationId\":\"" + CORRELATION_ID + "\"}");
+		assertMalformed("{}");
+		assertMalformed("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":1");
+		assertMalformed("{\"correlationId\":\"" + CORRELATION_ID);
+		assertMalformed("");
+	}
+
+	@Test
+	void writesPaymentSentThatReadsBack() {
+		QueuedPayment payment = new QueuedPayment(UUID.fromString(CORRELATION_ID).getMostSignificantBits(), UUID.fromString(CORRELATION_ID).getLeastSignificantBits(), 1_905);
+		PaymentSent sent = new PaymentSent(payment);
+		sent.setRequestedAt(Instant.parse("2025-07-15T12:34:56.007Z"));
+
+		DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(PaymentJsonCodec.PAYMENT_SENT_MAX_BYTES);
+		PaymentJsonCodec.writePaymentSent(sent, buffer);
+		String json = buffer.toString(StandardCharsets.US_ASCII);
+
+		assertEquals("{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":19.05,\"requestedAt\":\"2025-07-15T12:34:56.007Z\"}", json);
+		QueuedPayment roundTrip = read(json);
+		assertEquals(payment.getCorrelationId(), roundTrip.getCorrelationId());
+		assertEquals(payment.getAmountCents(), roundTrip.getAmountCents());
+	}
+
+	@Test
+	void writesSummary() {
+		PaymentsSummaryResponse response = new PaymentsSummaryResponse(new Summary(3, 1_005L), new Summary(0, 0L));
+
+		DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(PaymentJsonCodec.SUMMARY_MAX_BYTES);
+		PaymentJsonCodec.writeSummary(response, buffer);
+
+		assertEquals("{\"default\":{\"totalRequests\":3,\"totalAmount\":10.05},\"fallback\":{\"totalRequests\":0,\"totalAmount\":0.00}}",
+				buffer.toString(StandardCharsets.US_ASCII));
+	}
+
+	private static long amountOf(String amount) {
+		return read(payload(amount)).getAmountCents();
+	}
+
+	private static String payload(String amount) {
+		return "{\"correlationId\":\"" + CORRELATION_ID + "\",\"amount\":" + amount + "}";
+	}
+
+	private static QueuedPayment read(String json) {
+		return PaymentJsonCodec.readQueuedPayment(DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private static void assertMalformed(String json) {
+		assertThrows(DecodingException.class, () -> read(json), json);
+	}
+}
@@ -0,0 +1,105 @@
+package br.com.rinha.pagamentos.config;
+
+import br.com.rinha.pagamentos.model.QueuedPayment;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.DefaultSerializers;
+import de.javakaffee.kryoserializers.UUIDSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryQueuedPaymentSerializerTest {
+
+	private final BinaryQueuedPaymentSerializer serializer = new BinaryQueuedPaymentSerializer();
+
+	@Test
+	void roundTripsAllFields() {
+		QueuedPayment payment = new QueuedPayment(0x4a7901b87d264d9dL, 0xaa194dc1c7cf60b3L, 1_990, 1_752_582_896_007L, 3);
+
+		byte[] bytes = serializer.serialize(payment);
+		QueuedPayment read = serializer.deserialize(bytes);
+
+		assertEquals(BinaryQueuedPaymentSerializer.RECORD_SIZE, bytes.length);
+		assertTrue(BinaryQueuedPaymentSerializer.isCurrentFormat(ByteBuffer.wrap(bytes)));
+		assertEquals(payment.getCorrelationIdMsb(), read.getCorrelationIdMsb());
+		assertEquals(payment.getCorrelationIdLsb(), read.getCorrelationIdLsb());
+		assertEquals(payment.getAmountCents(), read.getAmountCents());
+		assertEquals(payment.getReceivedAtMillis(), read.getReceivedAtMillis());
+		assertEquals(payment.getAttempts(), read.getAttempts());
+	}
+
+	@Test
+	void roundTripsNegativeIdsAndSaturatesAttempts() {
+		QueuedPayment payment = new QueuedPayment(-1L, Long.MIN_VALUE, Long.MAX_VALUE, 0, 1_000);
+
+		QueuedPayment read = serializer.deserialize(serializer.serialize(payment));
+
+		assertEquals(-1L, read.getCorrelationIdMsb());
+		assertEquals(Long.MIN_VALUE, read.getCorrelationIdLsb());
+		assertEquals(Long.MAX_VALUE, read.getAmountCents());
+		assertEquals(0, read.getReceivedAtMillis());
+		assertEquals(255, read.getAttempts());
+	}
+
+	@Test
+	void handlesNullAndEmpty() {
+		assertArrayEquals(new byte[0], serializer.serialize(null));
+		assertNull(serializer.deserialize(null));
+		assertNull(serializer.deserialize(new byte[0]));
+	}
+
+	@Test
+	void readsLegacyKryoEntries() throws Exception {
+		UUID correlationId = UUID.fromString("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3");
+		byte[] legacy = legacyBytes(correlationId, new BigDecimal("19.90"));
+
+		assertFalse(BinaryQueuedPaymentSerializer.isCurrentFormat(ByteBuffer.wrap(legacy)));
+		QueuedPayment read = serializer.deserialize(legacy);
+		assertEquals(correlationId, read.getCorrelationId());
+		assertEquals(1_990, read.getAmountCents());
+		assertEquals(0, read.getAttempts());
+	}
+
+	@Test
+	void rejectsGarbage() {
+		byte[] wrongVersion = serializer.serialize(new QueuedPayment(1, 2, 3));
+		wrongVersion[0] = 2;
+
+		assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{(byte) 0xFF, 0x13, 0x7F}));
+		assertThrows(SerializationException.class, () -> serializer.deserialize(wrongVersion));
+		assertFalse(BinaryQueuedPaymentSerializer.isCurrentFormat(ByteBuffer.wrap(wrongVersion)));
+	}
+
+	private static byte[] legacyBytes(UUID correlationId, BigDecimal amount) throws Exception {
+		LegacyQueuedPayment payment = new LegacyQueuedPayment();
+		set(payment, "correlationId", correlationId);
+		set(payment, "amount", amount);
+
+		Kryo kryo = new Kryo();
+		kryo.register(LegacyQueuedPayment.class, 10);
+		kryo.register(BigDecimal.class, new DefaultSerializers.BigDecimalSerializer(), 11);
+		kryo.register(UUID.class, new UUIDSerializer(), 12);
+		try (Output output = new Output(64, -1)) {
+			kryo.writeClassAndObject(output, payment);
+			return output.toBytes();
+		}
+	}
+
+	private static void set(Object target, String name, Object value) throws Exception {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+}
@@ -0,0 +1,153 @@
+package br.com.rinha.pagamentos.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongPairSetTest {
+
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 200;
+
+	@Test
+	void addsAndFindsPairs() {
+		LongPairSet set = new LongPairSet(64);
+
+		assertEquals(1, set.add(1, 2));
+		assertEquals(0, set.add(1, 2));
+		assertEquals(1, set.add(1, 3));
+		assertTrue(set.contains(1, 2));
+		assertTrue(set.contains(1, 3));
+		assertFalse(set.contains(2, 1));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	void storesZeroHalves() {
+		LongPairSet set = new LongPairSet(64);
+
+		assertEquals(1, set.add(0, 0));
+		assertEquals(0, set.add(0, 0));
+		assertEquals(1, set.add(0, 7));
+		assertEquals(1, set.add(7, 0));
+		assertTrue(set.contains(0, 0));
+		assertTrue(set.contains(0, 7));
+		assertTrue(set.contains(7, 0));
+	}
+
+	@Test
+	void concurrentAddsOfSamePairInsertOnce() throws Exception {
+		for (int round = 0; round < ROUNDS; round++) {
+			LongPairSet set = new LongPairSet(256);
+			int pairs = 64;
+			AtomicIntegerArray inserted = new AtomicIntegerArray(pairs);
+
+			runConcurrently(pairs, pair -> {
+				if (set.add(pair * 31L, pair * 17L + 1) == 1) {
+					inserted.incrementAndGet(pair);
+				}
+			});
+
+			assertEquals(pairs, set.size());
+			for (int pair = 0; pair < pairs; pair++) {
+				assertEquals(1, inserted.get(pair), "pair " + pair);
+				assertTrue(set.contains(pair * 31L, pair * 17L + 1));
+			}
+		}
+	}
+
+	@Test
+	void markCompletedAcrossRotationReportsEachPaymentOnce() throws Exception {
+		for (int round = 0; round < ROUNDS; round++) {
+			CompletedPaymentIndex index = new CompletedPaymentIndex(null, 256);
+			int payments = 160;
+			AtomicIntegerArray completed = new AtomicIntegerArray(payments);
+
+			runConcurrently(payments, payment -> {
+				if (index.markCompleted(payment + 1L, ~payment)) {
+					completed.incrementAndGet(payment);
+				}
+			});
+
+			assertEquals(1, index.getRotationCount());
+			for (int payment = 0; payment < payments; payment++) {
+				assertEquals(1, completed.get(payment), "payment " + payment);
+				assertTrue(index.isCompleted(payment + 1L, ~payment));
+			}
+		}
+	}
+
+	@Test
+	void forgetsPaymentsAfterTwoRotations() {
+		CompletedPaymentIndex index = new CompletedPaymentIndex(null, 16);
+
+		assertTrue(index.markCompleted(1, 1));
+		for (int payment = 2; payment <= 8; payment++) {
+			index.markCompleted(payment, payment);
+		}
+		assertEquals(1, index.getRotationCount());
+		assertTrue(index.isCompleted(1, 1));
+		assertFalse(index.markCompleted(1, 1));
+
+		for (int payment = 9; payment <= 16; payment++) {
+			index.markCompleted(payment, payment);
+		}
+		assertEquals(2, index.getRotationCount());
+		assertFalse(index.isCompleted(1, 1));
+		assertTrue(index.isCompleted(16, 16));
+	}
+
+	private static void runConcurrently(int items, IntTask task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				futures.add(executor.submit(() -> {
+					int[] order = shuffled(items);
+					start.await();
+					for (int item : order) {
+						task.run(item);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static int[] shuffled(int items) {
+		int[] order = new int[items];
+		for (int i = 0; i < items; i++) {
+			order[i] = i;
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = items - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		return order;
+	}
+
+	private interface IntTask {
+		void run(int item);
+	}
+}
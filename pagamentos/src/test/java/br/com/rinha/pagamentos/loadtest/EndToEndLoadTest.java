@@ -0,0 +1,164 @@
+package br.com.rinha.pagamentos.loadtest;
+
+import br.com.rinha.pagamentos.model.PaymentsSummaryResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@EnabledIfSystemProperty(named = "e2e", matches = "true")
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class EndToEndLoadTest {
+
+	private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+	private static final int TICKS_PER_SECOND = 100;
+
+	@Container
+	static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis/redis-stack-server:latest"))
+			.withExposedPorts(6379);
+
+	static final StubProcessor DEFAULT_PROCESSOR = new StubProcessor("default",
+			new StubProcessor.Latency(5, 20, 0.01, 800),
+			List.of(new StubProcessor.FailureWindow(20_000, 26_000))).start();
+
+	static final StubProcessor FALLBACK_PROCESSOR = new StubProcessor("fallback",
+			new StubProcessor.Latency(15, 30, 0.01, 400),
+			List.of()).start();
+
+	static final LoadProfile PROFILE = new LoadProfile(List.of(
+			new LoadProfile.Stage(100, 5),
+			new LoadProfile.Stage(300, 20),
+			new LoadProfile.Stage(500, 10)));
+
+	@LocalServerPort
+	int port;
+
+	@DynamicPropertySource
+	static void configure(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.redis.host", REDIS::getHost);
+		registry.add("spring.data.redis.port", () -> REDIS.getMappedPort(6379));
+		registry.add("processor.default.base.url", DEFAULT_PROCESSOR::baseUrl);
+		registry.add("processor.fallback.base.url", FALLBACK_PROCESSOR::baseUrl);
+		registry.add("summary.peer.url", () -> "");
+	}
+
+	@AfterAll
+	static void stopProcessors() {
+		DEFAULT_PROCESSOR.close();
+		FALLBACK_PROCESSOR.close();
+	}
+
+	@Test
+	void ledgersMatchSummaryUnderLoad() {
+		WebClient client = WebClient.create("http://localhost:" + port);
+		LatencyRecorder latencies = new LatencyRecorder(PROFILE.totalRequests());
+		LongAdder accepted = new LongAdder();
+		LongAdder failed = new LongAdder();
+
+		Instant from = Instant.now();
+		long startNanos = System.nanoTime();
+		replay(client, latencies, accepted, failed).block(Duration.ofMillis(PROFILE.durationMillis()).plusSeconds(30));
+		double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+		awaitLedgers(accepted.sum());
+		Instant to = Instant.now();
+
+		PaymentsSummaryResponse summary = client.get()
+				.uri(uri -> uri.path("/payments-summary").queryParam("from", from).queryParam("to", to).build())
+				.retrieve()
+				.bodyToMono(PaymentsSummaryResponse.class)
+				.block(Duration.ofSeconds(10));
+
+		long[] defaultLedger = DEFAULT_PROCESSOR.totals(from.toEpochMilli(), to.toEpochMilli());
+		long[] fallbackLedger = FALLBACK_PROCESSOR.totals(from.toEpochMilli(), to.toEpochMilli());
+		long[] percentiles = latencies.percentilesMicros(50, 99, 99.9);
+
+		System.out.printf("""
+						load: requests=%d accepted=%d failed=%d elapsed=%.1fs throughput=%.0f req/s
+						latency: p50=%dus p99=%dus p99.9=%dus
+						default: ledger=%d/%d summary=%d/%s rejected=%d duplicates=%d
+						fallback: ledger=%d/%d summary=%d/%s rejected=%d duplicates=%d
+						""",
+				latencies.count(), accepted.sum(), failed.sum(), elapsedSeconds, latencies.count() / elapsedSeconds,
+				percentiles[0], percentiles[1], percentiles[2],
+				defaultLedger[0], defaultLedger[1], summary.getDefaultSummary().getTotalRequests(),
+				summary.getDefaultSummary().getTotalAmount(), DEFAULT_PROCESSOR.rejectedCount(), DEFAULT_PROCESSOR.duplicateCount(),
+				fallbackLedger[0], fallbackLedger[1], summary.getFallbackSummary().getTotalRequests(),
+				summary.getFallbackSummary().getTotalAmount(), FALLBACK_PROCESSOR.rejectedCount(), FALLBACK_PROCESSOR.duplicateCount());
+
+		assertEquals(accepted.sum(), (long) DEFAULT_PROCESSOR.processedCount() + FALLBACK_PROCESSOR.processedCount(),
+				"every accepted payment must reach exactly one processor");
+		assertEquals(defaultLedger[0], summary.getDefaultSummary().getTotalRequests(), "default count");
+		assertEquals(StubProcessor.toAmount(defaultLedger[1]), summary.getDefaultSummary().getTotalAmount(), "default amount");
+		assertEquals(fallbackLedger[0], summary.getFallbackSummary().getTotalRequests(), "fallback count");
+		assertEquals(StubProcessor.toAmount(fallbackLedger[1]), summary.getFallbackSummary().getTotalAmount(), "fallback amount");
+	}
+
+	private Mono<Void> replay(WebClient client, LatencyRecorder latencies, LongAdder accepted, LongAdder failed) {
+		return Flux.fromIterable(PROFILE.stages())
+				.concatMap(stage -> {
+					int perTick = Math.max(1, stage.requestsPerSecond() / TICKS_PER_SECOND);
+					return Flux.interval(Duration.ofMillis(1000 / TICKS_PER_SECOND))
+							.take((long) stage.seconds() * TICKS_PER_SECOND)
+							.flatMap(tick -> Flux.range(0, perTick))
+							.flatMap(i -> send(client, latencies, accepted, failed));
+				})
+				.then();
+	}
+
+	private Mono<Void> send(WebClient client, LatencyRecorder latencies, LongAdder accepted, LongAdder failed) {
+		String body = "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":"
+				+ StubProcessor.toAmount(ThreadLocalRandom.current().nextLong(1, 100_00)) + "}";
+		long startNanos = System.nanoTime();
+		return client.post()
+				.uri("/payments")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(body)
+				.retrieve()
+				.toBodilessEntity()
+				.doOnSuccess(response -> {
+					latencies.record(System.nanoTime() - startNanos);
+					accepted.increment();
+				})
+				.onErrorResume(e -> {
+					latencies.record(System.nanoTime() - startNanos);
+					failed.increment();
+					return Mono.empty();
+				})
+				.then();
+	}
+
+	private static void awaitLedgers(long expected) {
+		long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+		while (System.nanoTime() < deadline
+				&& DEFAULT_PROCESSOR.processedCount() + FALLBACK_PROCESSOR.processedCount() < expected) {
+			try {
+				Thread.sleep(250);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package br.com.rinha.pagamentos.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class LatencyRecorder {
+
+	private final long[] samples;
+	private final AtomicInteger count = new AtomicInteger();
+
+	LatencyRecorder(int capacity) {
+		this.samples = new long[capacity];
+	}
+
+	void record(long nanos) {
+		int index = count.getAndIncrement();
+		if (index < samples.length) {
+			samples[index] = nanos;
+		}
+	}
+
+	int count() {
+		return Math.min(count.get(), samples.length);
+	}
+
+	long[] percentilesMicros(double... percentiles) {
+		int size = count();
+		long[] sorted = Arrays.copyOf(samples, size);
+		Arrays.sort(sorted);
+		long[] result = new long[percentiles.length];
+		for (int i = 0; i < percentiles.length; i++) {
+			if (size == 0) {
+				continue;
+			}
+			int rank = (int) Math.ceil(percentiles[i] / 100.0 * size) - 1;
+			result[i] = sorted[Math.max(0, Math.min(size - 1, rank))] / 1_000;
+		}
+		return result;
+	}
+}
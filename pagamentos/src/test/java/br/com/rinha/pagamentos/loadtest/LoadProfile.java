@@ -0,0 +1,25 @@
+package br.com.rinha.pagamentos.loadtest;
+
+import java.util.List;
+
+record LoadProfile(List<Stage> stages) {
+
+	int totalRequests() {
+		int total = 0;
+		for (Stage stage : stages) {
+			total += stage.requestsPerSecond() * stage.seconds();
+		}
+		return total;
+	}
+
+	long durationMillis() {
+		long total = 0;
+		for (Stage stage : stages) {
+			total += stage.seconds() * 1000L;
+		}
+		return total;
+	}
+
+	record Stage(int requestsPerSecond, int seconds) {
+	}
+}
@@ -0,0 +1,167 @@
+package br.com.rinha.pagamentos.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+final class StubProcessor implements AutoCloseable {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final String name;
+	private final Latency latency;
+	private final List<FailureWindow> failureWindows;
+	private final Map<String, LedgerEntry> ledger = new ConcurrentHashMap<>();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+
+	private volatile boolean healthFailing;
+	private volatile int healthMinResponseTime;
+	private volatile long startedAtMillis;
+	private DisposableServer server;
+
+	StubProcessor(String name, Latency latency, List<FailureWindow> failureWindows) {
+		this.name = name;
+		this.latency = latency;
+		this.failureWindows = failureWindows;
+	}
+
+	StubProcessor start() {
+		startedAtMillis = System.currentTimeMillis();
+		server = HttpServer.create()
+				.host("127.0.0.1")
+				.port(0)
+				.route(routes -> routes
+						.post("/payments", this::handlePayment)
+						.get("/payments/service-health", this::handleHealth)
+						.head("/", (request, response) -> response.status(HttpResponseStatus.NOT_FOUND).send()))
+				.bindNow();
+		return this;
+	}
+
+	String baseUrl() {
+		return "http://127.0.0.1:" + server.port();
+	}
+
+	void setHealth(boolean failing, int minResponseTime) {
+		this.healthFailing = failing;
+		this.healthMinResponseTime = minResponseTime;
+	}
+
+	private Mono<Void> handlePayment(HttpServerRequest request, HttpServerResponse response) {
+		return request.receive().aggregate().asByteArray()
+				.flatMap(body -> Mono.delay(Duration.ofMillis(latency.sample())).thenReturn(body))
+				.flatMap(body -> {
+					if (isFailingNow()) {
+						rejected.increment();
+						return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).send().then();
+					}
+					LedgerEntry entry;
+					String correlationId;
+					try {
+						JsonNode json = MAPPER.readTree(body);
+						correlationId = json.get("correlationId").asText();
+						entry = new LedgerEntry(
+								json.get("amount").decimalValue().movePointRight(2).longValueExact(),
+								Instant.parse(json.get("requestedAt").asText()).toEpochMilli());
+					} catch (IOException | RuntimeException e) {
+						return response.status(HttpResponseStatus.BAD_REQUEST).send().then();
+					}
+					if (ledger.putIfAbsent(correlationId, entry) != null) {
+						duplicates.increment();
+						return response.status(HttpResponseStatus.UNPROCESSABLE_ENTITY).send().then();
+					}
+					return response.status(HttpResponseStatus.OK)
+							.header("Content-Type", "application/json")
+							.sendString(Mono.just("{\"message\":\"payment processed successfully\"}"))
+							.then();
+				});
+	}
+
+	private Mono<Void> handleHealth(HttpServerRequest request, HttpServerResponse response) {
+		String body = "{\"failing\":" + healthFailing + ",\"minResponseTime\":" + healthMinResponseTime + "}";
+		return response.header("Content-Type", "application/json").sendString(Mono.just(body)).then();
+	}
+
+	private boolean isFailingNow() {
+		long elapsed = System.currentTimeMillis() - startedAtMillis;
+		for (FailureWindow window : failureWindows) {
+			if (elapsed >= window.fromMillis() && elapsed < window.toMillis()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	long[] totals(long fromMillis, long toMillis) {
+		long count = 0;
+		long cents = 0;
+		for (LedgerEntry entry : ledger.values()) {
+			if (entry.requestedAtMillis() >= fromMillis && entry.requestedAtMillis() <= toMillis) {
+				count++;
+				cents += entry.amountCents();
+			}
+		}
+		return new long[]{count, cents};
+	}
+
+	int processedCount() {
+		return ledger.size();
+	}
+
+	long rejectedCount() {
+		return rejected.sum();
+	}
+
+	long duplicateCount() {
+		return duplicates.sum();
+	}
+
+	String name() {
+		return name;
+	}
+
+	static BigDecimal toAmount(long cents) {
+		return BigDecimal.valueOf(cents, 2);
+	}
+
+	@Override
+	public void close() {
+		if (server != null) {
+			server.disposeNow();
+		}
+	}
+
+	record Latency(int baseMillis, int jitterMillis, double tailRatio, int tailMillis) {
+
+		long sample() {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long millis = baseMillis + (jitterMillis > 0 ? random.nextInt(jitterMillis) : 0);
+			if (tailRatio > 0 && random.nextDouble() < tailRatio) {
+				millis += tailMillis;
+			}
+			return millis;
+		}
+	}
+
+	record FailureWindow(long fromMillis, long toMillis) {
+	}
+
+	private record LedgerEntry(long amountCents, long requestedAtMillis) {
+	}
+}
@@ -0,0 +1,156 @@
+package br.com.rinha.pagamentos.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentJournalTest {
+
+	private static final int CAPACITY = 8;
+	private static final byte DEFAULT_PROCESSOR = 0;
+	private static final byte FALLBACK_PROCESSOR = 1;
+
+	private final Path directory;
+	private final Path path;
+
+	PaymentJournalTest() throws IOException {
+		this.directory = Files.createTempDirectory("payment-journal");
+		this.path = directory.resolve("node.journal");
+	}
+
+	@AfterEach
+	void deleteDirectory() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	@Test
+	void appendsAndListsPendingEntries() {
+		PaymentJournal journal = open();
+
+		assertTrue(journal.append(PaymentJournal.KIND_ENQUEUE, DEFAULT_PROCESSOR, 2, 11, 12, 1_990, 1_000));
+		assertTrue(journal.append(PaymentJournal.KIND_PERSIST, FALLBACK_PROCESSOR, 0, 21, 22, 500, 2_000));
+
+		List<PaymentJournal.Entry> entries = journal.pending(10, true);
+		assertEquals(2, entries.size());
+		assertEquals(new PaymentJournal.Entry(0, PaymentJournal.KIND_ENQUEUE, DEFAULT_PROCESSOR, 2, 11, 12, 1_990, 1_000), entries.get(0));
+		assertEquals(new PaymentJournal.Entry(1, PaymentJournal.KIND_PERSIST, FALLBACK_PROCESSOR, 0, 21, 22, 500, 2_000), entries.get(1));
+		assertEquals(2, journal.getPendingCount());
+		assertEquals(1, journal.getPendingEnqueueCount());
+
+		List<PaymentJournal.Entry> persistsOnly = journal.pending(10, false);
+		assertEquals(1, persistsOnly.size());
+		assertEquals(PaymentJournal.KIND_PERSIST, persistsOnly.get(0).kind());
+	}
+
+	@Test
+	void recoversPendingEntriesAfterReopen() {
+		PaymentJournal journal = open();
+		journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 1, 1, 100, 1_000);
+		journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 2, 2, 200, 2_000);
+		journal.append(PaymentJournal.KIND_ENQUEUE, DEFAULT_PROCESSOR, 1, 3, 3, 300, 3_000);
+		journal.markReplayed(journal.pending(1, true));
+		journal.sync();
+
+		PaymentJournal reopened = open();
+
+		assertEquals(2, reopened.getPendingCount());
+		assertEquals(1, reopened.getPendingEnqueueCount());
+		List<PaymentJournal.Entry> entries = reopened.pending(10, true);
+		assertEquals(2, entries.size());
+		assertEquals(2, entries.get(0).correlationIdMsb());
+		assertEquals(3, entries.get(1).correlationIdMsb());
+		assertEquals(1, entries.get(1).attempts());
+
+		assertTrue(reopened.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 4, 4, 400, 4_000));
+		assertEquals(3, reopened.pending(10, true).get(2).sequence());
+	}
+
+	@Test
+	void dropsTornRecordsOnRecovery() throws IOException {
+		PaymentJournal journal = open();
+		journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 1, 1, 100, 1_000);
+		journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 2, 2, 200, 2_000);
+		journal.sync();
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0x7F}), 32);
+		}
+
+		PaymentJournal reopened = open();
+		assertEquals(1, reopened.getPendingCount());
+		List<PaymentJournal.Entry> entries = reopened.pending(10, true);
+		assertEquals(1, entries.size());
+		assertEquals(2, entries.get(0).correlationIdMsb());
+
+		assertEquals(1, open().getPendingCount());
+	}
+
+	@Test
+	void replayedEntriesAreNeverReturnedAgain() {
+		PaymentJournal journal = open();
+		journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 1, 1, 100, 1_000);
+		journal.append(PaymentJournal.KIND_ENQUEUE, DEFAULT_PROCESSOR, 0, 2, 2, 200, 2_000);
+
+		List<PaymentJournal.Entry> entries = journal.pending(10, true);
+		journal.markReplayed(entries);
+		journal.markReplayed(entries);
+
+		assertEquals(2, journal.getReplayedCount());
+		assertEquals(0, journal.getPendingCount());
+		assertEquals(0, journal.getPendingEnqueueCount());
+		assertTrue(journal.pending(10, true).isEmpty());
+
+		journal.sync();
+		PaymentJournal reopened = open();
+		assertEquals(0, reopened.getPendingCount());
+		assertTrue(reopened.pending(10, true).isEmpty());
+	}
+
+	@Test
+	void rejectsAppendsOverPendingSlots() {
+		PaymentJournal journal = open();
+		for (int i = 0; i < CAPACITY; i++) {
+			assertTrue(journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, i, i, 100, 1_000));
+		}
+
+		assertFalse(journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 99, 99, 100, 1_000));
+		assertEquals(1, journal.getRejectedCount());
+
+		journal.markReplayed(journal.pending(1, true));
+		assertTrue(journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 99, 99, 100, 1_000));
+		List<PaymentJournal.Entry> entries = journal.pending(CAPACITY, true);
+		assertEquals(CAPACITY, entries.size());
+		assertEquals(99, entries.get(CAPACITY - 1).correlationIdMsb());
+	}
+
+	@Test
+	void runsDisabledWhenPathIsUnusable() throws IOException {
+		Path notADirectory = Files.createFile(directory.resolve("file"));
+
+		PaymentJournal journal = new PaymentJournal(true, notADirectory.resolve("node.journal").toString(), CAPACITY);
+
+		assertFalse(journal.isEnabled());
+		assertFalse(journal.append(PaymentJournal.KIND_PERSIST, DEFAULT_PROCESSOR, 0, 1, 1, 100, 1_000));
+		assertTrue(journal.pending(10, true).isEmpty());
+	}
+
+	private PaymentJournal open() {
+		return new PaymentJournal(true, path.toString(), CAPACITY);
+	}
+}
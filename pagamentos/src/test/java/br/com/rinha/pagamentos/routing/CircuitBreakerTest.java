@@ -0,0 +1,120 @@
+package br.com.rinha.pagamentos.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+	private static final int FAILURE_THRESHOLD = 3;
+	private static final long OPEN_MILLIS = 1_000;
+	private static final int HALF_OPEN_PROBES = 2;
+	private static final long HALF_OPEN_MILLIS = 3_000;
+	private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(2_000);
+
+	private final List<Integer> transitions = new ArrayList<>();
+	private final CircuitBreaker breaker = new CircuitBreaker("default", FAILURE_THRESHOLD, OPEN_MILLIS,
+			HALF_OPEN_PROBES, HALF_OPEN_MILLIS, SLOW_CALL_NANOS,
+			(source, state, openUntilMillis) -> transitions.add(state));
+
+	@Test
+	void closesAgainAfterSuccessfulProbe() {
+		long now = System.currentTimeMillis();
+		trip(now);
+		assertEquals(CircuitBreaker.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquire(now));
+
+		long afterOpen = now + OPEN_MILLIS + 100;
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+
+		breaker.onResult(true, FAST_NANOS);
+		assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertEquals(List.of(CircuitBreaker.OPEN, CircuitBreaker.CLOSED), transitions);
+	}
+
+	@Test
+	void failedProbeReopens() {
+		long now = System.currentTimeMillis();
+		trip(now);
+		assertTrue(breaker.tryAcquire(now + OPEN_MILLIS + 100));
+
+		breaker.onResult(false, FAST_NANOS);
+		assertEquals(CircuitBreaker.OPEN, breaker.getState());
+	}
+
+	@Test
+	void limitsProbesWhileHalfOpen() {
+		long now = System.currentTimeMillis();
+		trip(now);
+		long afterOpen = now + OPEN_MILLIS + 100;
+
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertFalse(breaker.tryAcquire(afterOpen));
+		assertFalse(breaker.isCallPermitted(afterOpen));
+	}
+
+	@Test
+	void cancelledProbeReturnsPermit() {
+		long now = System.currentTimeMillis();
+		trip(now);
+		long afterOpen = now + OPEN_MILLIS + 100;
+
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertTrue(breaker.tryAcquire(afterOpen));
+		breaker.onCancel();
+		breaker.onCancel();
+		breaker.onCancel();
+
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertFalse(breaker.tryAcquire(afterOpen));
+
+		breaker.onResult(true, FAST_NANOS);
+		assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void lostProbesExpireBackToOpen() {
+		long now = System.currentTimeMillis();
+		trip(now);
+		long afterOpen = now + OPEN_MILLIS + 100;
+		assertTrue(breaker.tryAcquire(afterOpen));
+		assertTrue(breaker.tryAcquire(afterOpen));
+
+		long afterHalfOpen = afterOpen + HALF_OPEN_MILLIS;
+		assertFalse(breaker.isCallPermitted(afterHalfOpen));
+		assertFalse(breaker.tryAcquire(afterHalfOpen));
+		assertEquals(CircuitBreaker.OPEN, breaker.getState());
+
+		long afterReopen = afterHalfOpen + OPEN_MILLIS;
+		assertTrue(breaker.tryAcquire(afterReopen));
+		assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+		breaker.onResult(true, FAST_NANOS);
+		assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void slowSuccessCountsAsFailure() {
+		for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+			breaker.onResult(true, SLOW_CALL_NANOS);
+		}
+		assertEquals(CircuitBreaker.OPEN, breaker.getState());
+	}
+
+	private void trip(long now) {
+		for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+			assertTrue(breaker.tryAcquire(now));
+			breaker.onResult(false, FAST_NANOS);
+		}
+	}
+}
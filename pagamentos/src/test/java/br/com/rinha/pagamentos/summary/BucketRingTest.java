@@ -0,0 +1,98 @@
+package br.com.rinha.pagamentos.summary;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketRingTest {
+
+	@Test
+	void accumulatesPerProcessor() {
+		BucketRing ring = new BucketRing(8);
+
+		assertTrue(ring.add(3, 0, 1_000));
+		assertTrue(ring.add(3, 0, 500));
+		assertTrue(ring.add(3, 1, 250));
+
+		long[] totals = new long[4];
+		assertTrue(ring.accumulate(3, totals));
+		assertArrayEquals(new long[]{2, 1_500, 1, 250}, totals);
+	}
+
+	@Test
+	void emptyBucketCountsAsZero() {
+		BucketRing ring = new BucketRing(8);
+		ring.add(2, 0, 100);
+
+		long[] totals = new long[4];
+		assertTrue(ring.accumulate(10, totals));
+		assertTrue(ring.accumulate(5, totals));
+		assertArrayEquals(new long[4], totals);
+	}
+
+	@Test
+	void wrapAroundResetsBucketForNewerKey() {
+		BucketRing ring = new BucketRing(8);
+		assertEquals(8, ring.size());
+
+		ring.add(5, 0, 100);
+		ring.add(13, 1, 700);
+
+		long[] totals = new long[4];
+		assertTrue(ring.accumulate(13, totals));
+		assertArrayEquals(new long[]{0, 0, 1, 700}, totals);
+		assertFalse(ring.accumulate(5, new long[4]));
+	}
+
+	@Test
+	void rejectsWritesOlderThanBucket() {
+		BucketRing ring = new BucketRing(8);
+		ring.add(13, 0, 100);
+
+		assertFalse(ring.add(5, 0, 100));
+
+		long[] totals = new long[4];
+		assertTrue(ring.accumulate(13, totals));
+		assertArrayEquals(new long[]{1, 100, 0, 0}, totals);
+	}
+
+	@Test
+	void roundsSizeUpToPowerOfTwo() {
+		assertEquals(1024, new BucketRing(1000).size());
+		assertEquals(2, new BucketRing(1).size());
+	}
+
+	@Test
+	void readsAreNeverTorn() throws Exception {
+		BucketRing ring = new BucketRing(4);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			writers[w] = new Thread(() -> {
+				while (running.get()) {
+					ring.add(1, 0, 100);
+					ring.add(1, 1, 7);
+				}
+			});
+			writers[w].start();
+		}
+		try {
+			for (int read = 0; read < 200_000; read++) {
+				long[] totals = new long[4];
+				assertTrue(ring.accumulate(1, totals));
+				assertEquals(totals[0] * 100, totals[1]);
+				assertEquals(totals[2] * 7, totals[3]);
+			}
+		} finally {
+			running.set(false);
+			for (Thread writer : writers) {
+				writer.join();
+			}
+		}
+	}
+}
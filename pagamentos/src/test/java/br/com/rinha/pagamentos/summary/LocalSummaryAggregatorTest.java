@@ -0,0 +1,77 @@
+package br.com.rinha.pagamentos.summary;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalSummaryAggregatorTest {
+
+	private static final int WINDOW_SECONDS = 16;
+	private static final int EDGE_SECONDS = 2;
+
+	private final LocalSummaryAggregator aggregator = new LocalSummaryAggregator(WINDOW_SECONDS, EDGE_SECONDS);
+	private final long second = (System.currentTimeMillis() / 1000 + 1) * 1000;
+
+	@Test
+	void includesBothEdgesOfWindow() {
+		aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + 250, 100);
+		aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + 1_000, 200);
+		aggregator.record(LocalSummaryAggregator.FALLBACK_PROCESSOR, second + 1_750, 300);
+		aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + 1_751, 400);
+
+		long[] totals = new long[4];
+		assertTrue(aggregator.sum(second + 250, second + 1_750, totals));
+		assertArrayEquals(new long[]{2, 300, 1, 300}, totals);
+
+		assertTrue(aggregator.sum(second + 251, second + 1_749, totals));
+		assertArrayEquals(new long[]{1, 200, 0, 0}, totals);
+	}
+
+	@Test
+	void combinesFullSecondsWithPartialEdges() {
+		for (int s = 0; s < 4; s++) {
+			aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + s * 1_000L + 500, 10);
+		}
+
+		long[] totals = new long[4];
+		assertTrue(aggregator.sum(second + 500, second + 3_500, totals));
+		assertArrayEquals(new long[]{4, 40, 0, 0}, totals);
+
+		assertTrue(aggregator.sum(second + 501, second + 3_499, totals));
+		assertArrayEquals(new long[]{2, 20, 0, 0}, totals);
+
+		assertTrue(aggregator.sum(second, second + 3_999, totals));
+		assertArrayEquals(new long[]{4, 40, 0, 0}, totals);
+	}
+
+	@Test
+	void emptyAndInvertedWindows() {
+		aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + 10, 10);
+
+		long[] totals = new long[4];
+		assertTrue(aggregator.sum(second + 11, second + 11, totals));
+		assertArrayEquals(new long[4], totals);
+		assertTrue(aggregator.sum(second + 20, second + 10, totals));
+		assertArrayEquals(new long[4], totals);
+	}
+
+	@Test
+	void refusesEdgesOlderThanMillisRing() {
+		aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + 100, 10);
+		aggregator.record(LocalSummaryAggregator.DEFAULT_PROCESSOR, second + 100 + 2_048, 10);
+
+		long[] totals = new long[4];
+		assertFalse(aggregator.sum(second + 100, second + 200, totals));
+		assertTrue(aggregator.sum(second, second + 3_999, totals));
+		assertArrayEquals(new long[]{2, 20, 0, 0}, totals);
+	}
+
+	@Test
+	void refusesWindowsBeforeCoverageOrWiderThanRing() {
+		long[] totals = new long[4];
+		assertFalse(aggregator.sum(aggregator.getCoverageStartMillis() - 1, second, totals));
+		assertFalse(aggregator.sum(second, second + (WINDOW_SECONDS + 2) * 1_000L, totals));
+	}
+}